@@ -0,0 +1,26 @@
+package solitairegame;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Avvia tutti i benchmark del modello con il profiler GC, che riporta i
+ * byte allocati per operazione (gc.alloc.rate.norm). Con argomenti passa la
+ * riga di comando a JMH così com'è.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0) {
+            org.openjdk.jmh.Main.main(args);
+            return;
+        }
+        Options opzioni = new OptionsBuilder()
+                .include(GameModelBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(opzioni).run();
+    }
+}
@@ -0,0 +1,145 @@
+package solitairegame;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark dei percorsi critici di {@link GameModel} su posizioni fisse
+ * ({@link PosizioniBenchmark}). Ogni benchmark lascia la posizione com'era
+ * (oppure la fa ciclare), così le misure restano stabili tra le iterazioni.
+ *
+ * Ogni mossa, annulla e ripeti finisce nel registro e nel replay del
+ * modello, che crescerebbero senza limite: ogni {@link #MAX_STORICO} eventi
+ * la posizione corrente viene reinstallata con lo storico vuoto, così si
+ * misura la mossa e non la crescita degli array e il GC.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameModelBenchmark {
+
+    private GameModel metaPartita;
+    private GameModel stockFacile;
+    private GameModel stockGiro;
+    private GameModel pilaLunga;
+    private GameModel vinta;
+
+    private GameModel.Card cartaProva;
+    private int colonnaPila;
+    private final int[] mosse = new int[GameModel.MAX_MOSSE_LEGALI];
+
+    static final int MAX_STORICO = 1 << 12;
+
+    private static void limitaStorico(GameModel modello) {
+        if (modello.getRegistrazione().size() >= MAX_STORICO) {
+            modello.setBoardState(modello.getBoardState());
+        }
+    }
+
+    @Setup
+    public void prepara() {
+        metaPartita = PosizioniBenchmark.metaPartita();
+        stockFacile = PosizioniBenchmark.inizioPartita(GameModel.Difficulty.FACILE);
+        stockGiro = PosizioniBenchmark.inizioPartita(GameModel.Difficulty.FACILE);
+        pilaLunga = PosizioniBenchmark.pilaLunga();
+        vinta = PosizioniBenchmark.vinta();
+        cartaProva = metaPartita.getTableau().get(0).get(metaPartita.getTableau().get(0).size() - 1);
+        colonnaPila = 0;
+    }
+
+    @Benchmark
+    public boolean annullaERipeti() {
+        limitaStorico(metaPartita);
+        metaPartita.drawFromStock();
+        metaPartita.annullaMossa();
+        metaPartita.ripetiMossa();
+        return metaPartita.annullaMossa();
+    }
+
+    @Benchmark
+    public boolean annullaMossa() {
+        limitaStorico(metaPartita);
+        metaPartita.drawFromStock();
+        return metaPartita.annullaMossa();
+    }
+
+    /** Una pescata; ogni 25 chiamate passa dal ramo di riciclo dello scarto. */
+    @Benchmark
+    public int drawFromStock() {
+        limitaStorico(stockFacile);
+        stockFacile.drawFromStock();
+        return stockFacile.getWastePile().size();
+    }
+
+    /** Giro completo: 24 pescate più il riciclo. */
+    @Benchmark
+    @OperationsPerInvocation(25)
+    public int drawFromStockGiroCompleto() {
+        limitaStorico(stockGiro);
+        for (int i = 0; i < 25; i++) {
+            stockGiro.drawFromStock();
+        }
+        return stockGiro.getStockPile().size();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(7)
+    public void canPlaceOnTableau(Blackhole bh) {
+        for (int col = 0; col < 7; col++) {
+            bh.consume(metaPartita.canPlaceOnTableau(cartaProva, col));
+        }
+    }
+
+    /** Tutte le mosse legali di metà partita, nel buffer riutilizzato. */
+    @Benchmark
+    public int generaMosseLegali() {
+        return metaPartita.generaMosseLegali(mosse, 0);
+    }
+
+    /** Chiave di posizione incrementale contro la fotografia completa delle pile. */
+    @Benchmark
+    public long zobristHash() {
+        return metaPartita.getZobristHash();
+    }
+
+    @Benchmark
+    public int hashDaFotografia() {
+        return metaPartita.getBoardState().hashCode();
+    }
+
+    /** Sposta la sequenza di 11 carte da un re all'altro e ritorno. */
+    @Benchmark
+    public boolean tryPlaceOnTableauPilaLunga() {
+        limitaStorico(pilaLunga);
+        int destinazione = 1 - colonnaPila;
+        pilaLunga.startDragFromTableau(colonnaPila, 1);
+        boolean ok = pilaLunga.tryPlaceOnTableau(destinazione);
+        pilaLunga.clearDrag();
+        colonnaPila = destinazione;
+        return ok;
+    }
+
+    @Benchmark
+    public boolean checkWinInCorso() {
+        return metaPartita.checkWin();
+    }
+
+    @Benchmark
+    public boolean checkWinVinta() {
+        return vinta.checkWin();
+    }
+}
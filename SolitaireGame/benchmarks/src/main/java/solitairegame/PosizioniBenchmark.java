@@ -0,0 +1,102 @@
+package solitairegame;
+
+/**
+ * Posizioni fisse usate dai benchmark: sempre le stesse a ogni esecuzione,
+ * così i numeri restano confrontabili tra versioni del modello.
+ */
+final class PosizioniBenchmark {
+
+    static final long PARTITA = 1;
+    static final int MOSSE_META_PARTITA = 30;
+
+    private PosizioniBenchmark() {
+    }
+
+    /**
+     * Partita numero PARTITA dopo le prime mosse della soluzione del solver
+     * (ricerca limitata solo dai nodi, quindi deterministica).
+     */
+    static GameModel metaPartita() {
+        long numero = PARTITA;
+        while (true) {
+            GameModel modello = new GameModel();
+            modello.setDifficulty(GameModel.Difficulty.FACILE);
+            modello.initGame(numero);
+            Solver.Risultato r = new Solver(5_000_000, Long.MAX_VALUE / 2_000_000).risolvi(modello);
+            int[] mosse = r.getMosse();
+            if (mosse.length > MOSSE_META_PARTITA) {
+                for (int i = 0; i < MOSSE_META_PARTITA; i++) {
+                    modello.applyMove(mosse[i]);
+                }
+                return modello;
+            }
+            numero++;
+        }
+    }
+
+    /**
+     * Stock pieno (24 carte) e scarto vuoto, livello FACILE.
+     */
+    static GameModel inizioPartita(GameModel.Difficulty difficolta) {
+        GameModel modello = new GameModel();
+        modello.setDifficulty(difficolta);
+        modello.initGame(PARTITA);
+        return modello;
+    }
+
+    /**
+     * Colonna 1: re di picche con sopra la sequenza Q♥ J♠ 10♥ ... 2♥ (11 carte).
+     * Colonna 2: re di fiori. La sequenza può passare da un re all'altro.
+     * Tutte le altre carte sono nello stock.
+     */
+    static GameModel pilaLunga() {
+        int[] colonna1 = {51, 11, 49, 9, 47, 7, 45, 5, 43, 3, 41, 1};
+        int[] colonna2 = {38};
+        boolean[] usate = new boolean[52];
+        for (int c : colonna1) {
+            usate[c] = true;
+        }
+        usate[38] = true;
+
+        byte[] dati = new byte[BoardState.CARTE + 52];
+        int stock = 0;
+        int pos = BoardState.CARTE;
+        for (int c = 0; c < 52; c++) {
+            if (!usate[c]) {
+                dati[pos++] = (byte) c;
+                stock++;
+            }
+        }
+        for (int c : colonna1) {
+            dati[pos++] = (byte) c;
+        }
+        for (int c : colonna2) {
+            dati[pos++] = (byte) c;
+        }
+        dati[BoardState.STOCK] = (byte) stock;
+        dati[BoardState.DIM_COLONNE] = (byte) colonna1.length;
+        dati[BoardState.DIM_COLONNE + 1] = (byte) colonna2.length;
+        for (int f = 0; f < 4; f++) {
+            dati[BoardState.FONDAMENTA + f] = -1;
+        }
+
+        GameModel modello = new GameModel();
+        modello.initGame(PARTITA);
+        modello.setBoardState(new BoardState(dati));
+        return modello;
+    }
+
+    /**
+     * Tutte le carte in fondamenta.
+     */
+    static GameModel vinta() {
+        byte[] dati = new byte[BoardState.CARTE];
+        for (int f = 0; f < 4; f++) {
+            dati[BoardState.FONDAMENTA + f] = (byte) (f * 13 + 12);
+        }
+        GameModel modello = new GameModel();
+        modello.initGame(PARTITA);
+        modello.setBoardState(new BoardState(dati));
+        return modello;
+    }
+}
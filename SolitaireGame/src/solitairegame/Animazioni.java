@@ -0,0 +1,143 @@
+package solitairegame;
+
+import java.util.Arrays;
+import javax.swing.Timer;
+
+/**
+ * ANIMAZIONI - Un solo orologio per tutte le animazioni: voli delle carte,
+ * pause tra un passo e l'altro, avanzamento del replay.
+ *
+ * Un unico {@link Timer} batte i frame finché c'è almeno un'animazione
+ * attiva e si ferma da solo quando non ce ne sono più. Ogni animazione
+ * calcola il proprio stato dal tempo trascorso ({@link System#nanoTime}),
+ * non dal numero di frame: se l'EDT rimane indietro i frame persi vengono
+ * saltati e la durata resta quella prevista. Tutte le animazioni di un
+ * frame vedono lo stesso istante; un frame a regime non alloca.
+ *
+ * Tutti i metodi vanno chiamati dall'EDT.
+ */
+final class Animazioni {
+
+    static final int INTERVALLO_FRAME_MS = 16; // ~60fps
+
+    /**
+     * Un'animazione attiva: riceve l'istante del frame e ritorna false
+     * quando ha finito.
+     */
+    interface Animazione {
+        boolean frame(long adessoNs);
+    }
+
+    /**
+     * Posizione raggiunta da un volo in questo frame.
+     */
+    interface Movimento {
+        void posizione(int x, int y);
+    }
+
+    private final Timer timer;
+    private Animazione[] attive = new Animazione[16];
+    private int numero = 0;
+
+    Animazioni() {
+        timer = new Timer(INTERVALLO_FRAME_MS, e -> frame(System.nanoTime()));
+        timer.setCoalesce(true); // eventi in ritardo fusi in un frame solo
+    }
+
+    /**
+     * Aggiunge un'animazione; il primo frame arriva al prossimo battito.
+     */
+    void avvia(Animazione animazione) {
+        if (numero == attive.length) {
+            attive = Arrays.copyOf(attive, numero * 2);
+        }
+        attive[numero++] = animazione;
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Esegue l'azione dopo il ritardo indicato.
+     */
+    void dopo(long ritardoNs, Runnable azione) {
+        long scadenza = System.nanoTime() + ritardoNs;
+        avvia(adesso -> {
+            if (adesso - scadenza < 0) {
+                return true;
+            }
+            azione.run();
+            return false;
+        });
+    }
+
+    /**
+     * Volo da (x0, y0) a (x1, y1) in durataNs con rallentamento finale
+     * (ease-out cubico). movimento riceve subito la partenza e poi la
+     * posizione a ogni frame, arrivo compreso; poi viene eseguito fine.
+     */
+    void volo(int x0, int y0, int x1, int y1, long durataNs, Movimento movimento, Runnable fine) {
+        movimento.posizione(x0, y0);
+        avvia(new Volo(System.nanoTime(), durataNs, x0, y0, x1, y1, movimento, fine));
+    }
+
+    /**
+     * Numero di animazioni attive.
+     */
+    int size() {
+        return numero;
+    }
+
+    // ── Frame ────────────────────────────────────────────────────────────────
+    void frame(long adessoNs) {
+        // Le animazioni aggiunte durante il frame partono dal prossimo
+        int daEseguire = numero;
+        int rimaste = 0;
+        for (int i = 0; i < numero; i++) {
+            Animazione animazione = attive[i];
+            if (i >= daEseguire || animazione.frame(adessoNs)) {
+                attive[rimaste++] = animazione;
+            }
+        }
+        Arrays.fill(attive, rimaste, numero, null);
+        numero = rimaste;
+        if (numero == 0) {
+            timer.stop();
+        }
+    }
+
+    private static final class Volo implements Animazione {
+
+        private final long inizioNs;
+        private final long durataNs;
+        private final int x0, y0, x1, y1;
+        private final Movimento movimento;
+        private final Runnable fine;
+
+        Volo(long inizioNs, long durataNs, int x0, int y0, int x1, int y1,
+                Movimento movimento, Runnable fine) {
+            this.inizioNs = inizioNs;
+            this.durataNs = Math.max(1, durataNs);
+            this.x0 = x0;
+            this.y0 = y0;
+            this.x1 = x1;
+            this.y1 = y1;
+            this.movimento = movimento;
+            this.fine = fine;
+        }
+
+        @Override
+        public boolean frame(long adessoNs) {
+            double t = Math.min(1.0, Math.max(0, adessoNs - inizioNs) / (double) durataNs);
+            double u = 1 - t;
+            double avanzamento = 1 - u * u * u;
+            movimento.posizione((int) Math.round(x0 + avanzamento * (x1 - x0)),
+                    (int) Math.round(y0 + avanzamento * (y1 - y0)));
+            if (t < 1) {
+                return true;
+            }
+            fine.run();
+            return false;
+        }
+    }
+}
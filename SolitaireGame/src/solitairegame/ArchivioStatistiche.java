@@ -0,0 +1,315 @@
+package solitairegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * ARCHIVIO STATISTICHE - Storico delle partite concluse (vinte o
+ * abbandonate) con i totali per difficoltà sempre pronti.
+ *
+ * Lo storico è un file in sola aggiunta di record di lunghezza fissa; i
+ * totali (partite, vittorie, tempo e mosse migliori, istogramma dei tempi
+ * di vittoria al secondo) stanno in un file indice accanto, riscritto a
+ * ogni partita insieme al numero di record che riassume. All'apertura si
+ * legge l'indice e si aggiungono solo i record successivi, quindi le
+ * statistiche costano uguale con dieci o con centinaia di migliaia di
+ * partite; senza indice valido lo storico viene riletto una volta.
+ *
+ * Formato dello storico:
+ * <pre>
+ * header (16 byte): magic, versione, dimensione record, -
+ * record (24 byte): [0] numero partita, [8] secondi, [12] mosse,
+ *                   [16] difficoltà, [17] esito, [20] data (secondi epoch)
+ * </pre>
+ * L'indice usa l'involucro di {@link SalvataggioPartita} con magic "SOLI".
+ */
+public final class ArchivioStatistiche implements Closeable {
+
+    public enum Esito {
+        VINTA, ABBANDONATA
+    }
+
+    // Tempi di vittoria contati al secondo fino a un'ora, oltre in un'unica classe
+    static final int MAX_TEMPO = 3600;
+
+    private static final int MAGIC = 0x534F4C48; // "SOLH"
+    private static final int MAGIC_INDICE = 0x534F4C49; // "SOLI"
+    private static final int VERSIONE = 1;
+    private static final int HEADER = 16;
+    private static final int RECORD = 24;
+    private static final int BLOCCO_LETTURA = 4096 / RECORD * RECORD;
+
+    // ── Riepilogo per difficoltà ─────────────────────────────────────────────
+    public static final class Riepilogo {
+
+        private final long giocate;
+        private final long vinte;
+        private final int migliorTempo;
+        private final int migliorMosse;
+        private final int[] istogramma;
+
+        private Riepilogo(long giocate, long vinte, int migliorTempo, int migliorMosse, int[] istogramma) {
+            this.giocate = giocate;
+            this.vinte = vinte;
+            this.migliorTempo = migliorTempo;
+            this.migliorMosse = migliorMosse;
+            this.istogramma = istogramma;
+        }
+
+        public long getPartiteGiocate() {
+            return giocate;
+        }
+
+        public long getPartiteVinte() {
+            return vinte;
+        }
+
+        /**
+         * Percentuale di vittorie (0-100), 0 senza partite.
+         */
+        public double getPercentualeVittorie() {
+            return giocate == 0 ? 0 : 100.0 * vinte / giocate;
+        }
+
+        /**
+         * Tempo della vittoria più veloce in secondi, -1 senza vittorie.
+         */
+        public int getMigliorTempo() {
+            return migliorTempo;
+        }
+
+        /**
+         * Minimo numero di mosse di una vittoria, -1 senza vittorie.
+         */
+        public int getMigliorMosse() {
+            return migliorMosse;
+        }
+
+        /**
+         * Tempo entro cui si è chiusa la percentuale indicata delle
+         * vittorie (50 = mediana), -1 senza vittorie. I tempi oltre
+         * {@link #MAX_TEMPO} valgono MAX_TEMPO.
+         */
+        public int getPercentileTempo(double percentuale) {
+            if (vinte == 0) {
+                return -1;
+            }
+            long posizione = Math.max(1, (long) Math.ceil(percentuale / 100.0 * vinte));
+            long cumulate = 0;
+            for (int secondi = 0; secondi < istogramma.length; secondi++) {
+                cumulate += istogramma[secondi];
+                if (cumulate >= posizione) {
+                    return secondi;
+                }
+            }
+            return MAX_TEMPO;
+        }
+    }
+
+    // ── Stato ────────────────────────────────────────────────────────────────
+    private final FileChannel canale;
+    private final Path fileIndice;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD);
+    private long numeroRecord;
+
+    // Totali per difficoltà (indice = ordinal)
+    private final long[] giocate = new long[GameModel.Difficulty.values().length];
+    private final long[] vinte = new long[giocate.length];
+    private final int[] migliorTempo = new int[giocate.length];
+    private final int[] migliorMosse = new int[giocate.length];
+    private final int[][] istogramma = new int[giocate.length][MAX_TEMPO + 1];
+
+    private ArchivioStatistiche(FileChannel canale, Path fileIndice) {
+        this.canale = canale;
+        this.fileIndice = fileIndice;
+        azzeraTotali();
+    }
+
+    /**
+     * Storico predefinito, accanto al salvataggio della partita.
+     */
+    public static Path percorsoPredefinito() {
+        return SalvataggioPartita.percorsoPredefinito().resolveSibling("storico.dat");
+    }
+
+    /**
+     * Apre lo storico, creandolo se non esiste, e ne carica i totali.
+     */
+    public static ArchivioStatistiche apri(Path file) throws IOException {
+        Path cartella = file.toAbsolutePath().getParent();
+        Files.createDirectories(cartella);
+        FileChannel canale = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ArchivioStatistiche archivio = new ArchivioStatistiche(canale,
+                    cartella.resolve(file.getFileName() + ".idx"));
+            archivio.carica(file);
+            return archivio;
+        } catch (IOException | RuntimeException e) {
+            canale.close();
+            throw e;
+        }
+    }
+
+    private void carica(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        if (canale.size() == 0) {
+            header.putInt(MAGIC).putInt(VERSIONE).putInt(RECORD).putInt(0).flip();
+            canale.write(header, 0);
+        } else {
+            canale.read(header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSIONE || header.getInt(8) != RECORD) {
+                throw new IOException("Storico delle partite non valido: " + file);
+            }
+        }
+        // Un record scritto a metà (chiusura improvvisa) viene scartato
+        numeroRecord = Math.max(0, (canale.size() - HEADER) / RECORD);
+        canale.truncate(HEADER + numeroRecord * RECORD);
+
+        long riassunti = leggiIndice();
+        if (riassunti > numeroRecord) {
+            azzeraTotali();
+            riassunti = 0;
+        }
+        if (riassunti < numeroRecord) {
+            aggiungiRecord(riassunti);
+            scriviIndice();
+        }
+    }
+
+    // ── Registrazione ────────────────────────────────────────────────────────
+    /**
+     * Aggiunge una partita conclusa allo storico e ai totali.
+     */
+    public synchronized void registra(long numeroPartita, GameModel.Difficulty difficolta,
+            int secondi, int mosse, Esito esito) throws IOException {
+        record.clear();
+        record.putLong(numeroPartita).putInt(secondi).putInt(mosse)
+                .put((byte) difficolta.ordinal()).put((byte) esito.ordinal()).putShort((short) 0)
+                .putInt((int) (System.currentTimeMillis() / 1000));
+        record.flip();
+        long posizione = HEADER + numeroRecord * RECORD;
+        while (record.hasRemaining()) {
+            posizione += canale.write(record, posizione);
+        }
+        numeroRecord++;
+        accumula(difficolta.ordinal(), secondi, mosse, esito.ordinal());
+        scriviIndice();
+    }
+
+    /**
+     * Totali della difficoltà; non rilegge lo storico.
+     */
+    public synchronized Riepilogo getRiepilogo(GameModel.Difficulty difficolta) {
+        int d = difficolta.ordinal();
+        return new Riepilogo(giocate[d], vinte[d], migliorTempo[d], migliorMosse[d], istogramma[d].clone());
+    }
+
+    /**
+     * Numero di partite nello storico.
+     */
+    public synchronized long size() {
+        return numeroRecord;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        canale.close();
+    }
+
+    // ── Totali ───────────────────────────────────────────────────────────────
+    private void azzeraTotali() {
+        for (int d = 0; d < giocate.length; d++) {
+            giocate[d] = 0;
+            vinte[d] = 0;
+            migliorTempo[d] = -1;
+            migliorMosse[d] = -1;
+            Arrays.fill(istogramma[d], 0);
+        }
+    }
+
+    private void accumula(int difficolta, int secondi, int mosse, int esito) {
+        if (difficolta < 0 || difficolta >= giocate.length) {
+            return;
+        }
+        giocate[difficolta]++;
+        if (esito != Esito.VINTA.ordinal()) {
+            return;
+        }
+        vinte[difficolta]++;
+        if (migliorTempo[difficolta] < 0 || secondi < migliorTempo[difficolta]) {
+            migliorTempo[difficolta] = secondi;
+        }
+        if (migliorMosse[difficolta] < 0 || mosse < migliorMosse[difficolta]) {
+            migliorMosse[difficolta] = mosse;
+        }
+        istogramma[difficolta][Math.max(0, Math.min(secondi, MAX_TEMPO))]++;
+    }
+
+    // Somma ai totali i record dello storico dal numero indicato in poi
+    private void aggiungiRecord(long primo) throws IOException {
+        ByteBuffer blocco = ByteBuffer.allocate(BLOCCO_LETTURA);
+        long posizione = HEADER + primo * RECORD;
+        long fine = HEADER + numeroRecord * RECORD;
+        while (posizione < fine) {
+            blocco.clear();
+            blocco.limit((int) Math.min(blocco.capacity(), fine - posizione));
+            while (blocco.hasRemaining()) {
+                if (canale.read(blocco, posizione + blocco.position()) < 0) {
+                    throw new IOException("Storico delle partite troncato");
+                }
+            }
+            blocco.flip();
+            while (blocco.remaining() >= RECORD) {
+                int base = blocco.position();
+                accumula(blocco.get(base + 16), blocco.getInt(base + 8), blocco.getInt(base + 12),
+                        blocco.get(base + 17));
+                blocco.position(base + RECORD);
+            }
+            posizione += blocco.limit();
+        }
+    }
+
+    // ── Indice ───────────────────────────────────────────────────────────────
+    /**
+     * Carica i totali dall'indice; ritorna quanti record riassumono, 0 se
+     * l'indice manca o non è valido.
+     */
+    private long leggiIndice() throws IOException {
+        ByteBuffer dati = SalvataggioPartita.leggiFile(fileIndice, MAGIC_INDICE, VERSIONE);
+        int difficolta = giocate.length;
+        if (dati == null || dati.remaining() != 8 + difficolta * (8 + 8 + 4 + 4 + 4 * (MAX_TEMPO + 1))) {
+            return 0;
+        }
+        long riassunti = dati.getLong();
+        for (int d = 0; d < difficolta; d++) {
+            giocate[d] = dati.getLong();
+            vinte[d] = dati.getLong();
+            migliorTempo[d] = dati.getInt();
+            migliorMosse[d] = dati.getInt();
+            dati.asIntBuffer().get(istogramma[d]);
+            dati.position(dati.position() + 4 * (MAX_TEMPO + 1));
+        }
+        return riassunti;
+    }
+
+    private void scriviIndice() throws IOException {
+        ByteBuffer dati = ByteBuffer.allocate(8 + giocate.length * (8 + 8 + 4 + 4 + 4 * (MAX_TEMPO + 1)));
+        dati.putLong(numeroRecord);
+        for (int d = 0; d < giocate.length; d++) {
+            dati.putLong(giocate[d]);
+            dati.putLong(vinte[d]);
+            dati.putInt(migliorTempo[d]);
+            dati.putInt(migliorMosse[d]);
+            dati.asIntBuffer().put(istogramma[d]);
+            dati.position(dati.position() + 4 * (MAX_TEMPO + 1));
+        }
+        SalvataggioPartita.scriviFile(fileIndice, MAGIC_INDICE, VERSIONE, dati);
+    }
+}
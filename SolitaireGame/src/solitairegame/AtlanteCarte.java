@@ -0,0 +1,168 @@
+package solitairegame;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import javax.imageio.ImageIO;
+
+/**
+ * ATLANTE CARTE - Tutte le facce e il dorso in un'unica immagine, con
+ * l'indice delle celle in testa: una risorsa nel classpath letta con una
+ * sola lettura sequenziale e poi affettata.
+ *
+ * L'atlante viene creato dalla build (target -post-compile di build.xml) a
+ * partire da cards_images e finisce nel jar, che così non dipende dalla
+ * cartella di lavoro. Le celle sono a scala {@link #SCALA} della carta:
+ * bastano per schermi HiDPI fino a 2x senza ingrandire.
+ *
+ * Formato:
+ * <pre>
+ * magic "SOLC", versione, larghezza cella, altezza cella, voci (int)
+ * voce: codice carta (52 = dorso) (byte), x, y (short)
+ * immagine PNG con tutte le celle
+ * </pre>
+ *
+ * Uso: AtlanteCarte cartellaImmagini fileAtlante
+ */
+final class AtlanteCarte {
+
+    static final String RISORSA = "carte.atlante";
+    static final int DORSO = 52;
+    static final int SCALA = 2;
+
+    private static final int MAGIC = 0x534F4C43; // "SOLC"
+    private static final int VERSIONE = 1;
+    private static final int COLONNE = 13;
+
+    private final BufferedImage immagine;
+    private final int larghezzaCella;
+    private final int altezzaCella;
+    // Posizione della cella per codice (0-52), -1 se manca
+    private final int[] x = new int[DORSO + 1];
+    private final int[] y = new int[DORSO + 1];
+
+    private AtlanteCarte(BufferedImage immagine, int larghezzaCella, int altezzaCella) {
+        this.immagine = immagine;
+        this.larghezzaCella = larghezzaCella;
+        this.altezzaCella = altezzaCella;
+        Arrays.fill(x, -1);
+    }
+
+    /**
+     * Immagine della carta (o del dorso con {@link #DORSO}), null se
+     * l'atlante non la contiene. Condivide i pixel dell'atlante.
+     */
+    BufferedImage get(int codice) {
+        return x[codice] < 0 ? null : immagine.getSubimage(x[codice], y[codice], larghezzaCella, altezzaCella);
+    }
+
+    // ── Lettura ──────────────────────────────────────────────────────────────
+    /**
+     * Atlante impacchettato nel classpath, null se la build non l'ha creato.
+     */
+    static URL risorsa() {
+        return AtlanteCarte.class.getResource(RISORSA);
+    }
+
+    static AtlanteCarte leggi(URL risorsa) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(risorsa.openStream(), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSIONE) {
+                throw new IOException("Atlante delle carte non valido: " + risorsa);
+            }
+            int larghezza = in.readInt();
+            int altezza = in.readInt();
+            int voci = in.readInt();
+            int[] codici = new int[voci];
+            int[] xs = new int[voci];
+            int[] ys = new int[voci];
+            for (int i = 0; i < voci; i++) {
+                codici[i] = in.readUnsignedByte();
+                xs[i] = in.readUnsignedShort();
+                ys[i] = in.readUnsignedShort();
+            }
+            BufferedImage immagine = ImageIO.read(in);
+            if (immagine == null) {
+                throw new IOException("Atlante delle carte non valido: " + risorsa);
+            }
+            AtlanteCarte atlante = new AtlanteCarte(immagine, larghezza, altezza);
+            for (int i = 0; i < voci; i++) {
+                if (codici[i] <= DORSO && xs[i] + larghezza <= immagine.getWidth()
+                        && ys[i] + altezza <= immagine.getHeight()) {
+                    atlante.x[codici[i]] = xs[i];
+                    atlante.y[codici[i]] = ys[i];
+                }
+            }
+            return atlante;
+        }
+    }
+
+    // ── Creazione (build) ────────────────────────────────────────────────────
+    static void scrivi(File cartella, Path file) throws IOException {
+        int larghezza = GameView.LARGHEZZA_CARTA * SCALA;
+        int altezza = GameView.ALTEZZA_CARTA * SCALA;
+        BufferedImage[] celle = new BufferedImage[DORSO + 1];
+        int voci = 0;
+        for (int codice = 0; codice < DORSO; codice++) {
+            File sorgente = CacheImmaginiCarte.fileCarta(cartella, codice);
+            if (sorgente != null) {
+                celle[codice] = ImageIO.read(sorgente);
+            }
+        }
+        File sorgenteRetro = CacheImmaginiCarte.fileRetro(cartella);
+        if (sorgenteRetro != null) {
+            celle[DORSO] = ImageIO.read(sorgenteRetro);
+        }
+        for (BufferedImage cella : celle) {
+            if (cella != null) {
+                voci++;
+            }
+        }
+
+        int righe = (DORSO + COLONNE) / COLONNE;
+        BufferedImage immagine = new BufferedImage(COLONNE * larghezza, righe * altezza, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = immagine.createGraphics();
+        Path temporaneo = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(temporaneo));
+                DataOutputStream out = new DataOutputStream(os)) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSIONE);
+            out.writeInt(larghezza);
+            out.writeInt(altezza);
+            out.writeInt(voci);
+            for (int codice = 0; codice <= DORSO; codice++) {
+                if (celle[codice] == null) {
+                    continue;
+                }
+                int cx = codice % COLONNE * larghezza;
+                int cy = codice / COLONNE * altezza;
+                g.drawImage(CacheImmaginiCarte.riduci(celle[codice], larghezza, altezza), cx, cy, null);
+                out.writeByte(codice);
+                out.writeShort(cx);
+                out.writeShort(cy);
+            }
+            g.dispose();
+            ImageIO.write(immagine, "png", out);
+        }
+        Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING);
+        System.out.printf("%s: %d immagini %dx%d, %d byte%n", file, voci, larghezza, altezza, Files.size(file));
+    }
+
+    public static void main(String[] args) throws IOException {
+        File cartella = new File(args.length > 0 ? args[0] : "cards_images");
+        Path file = Paths.get(args.length > 1 ? args[1] : RISORSA);
+        scrivi(cartella, file);
+    }
+}
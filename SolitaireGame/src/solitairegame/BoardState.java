@@ -0,0 +1,278 @@
+package solitairegame;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * STATO COMPATTO - Fotografia immutabile di una posizione del Solitario,
+ * impacchettata in un unico array di byte.
+ *
+ * Ogni carta è rappresentata dal suo codice 0-51 (seme * 13 + rango, come in
+ * {@link GameModel.Card#getCode()}). Lo stato di faccia non viene salvato
+ * carta per carta perché è implicito nella pila:
+ * stock sempre coperto, scarto e fondamenta sempre scoperti, e nel tavolo
+ * ogni colonna ha una parte coperta seguita da una parte scoperta.
+ *
+ * Formato dell'array:
+ * <pre>
+ * [0]       dimensione stock
+ * [1]       dimensione scarto
+ * [2..5]    carta in cima a ogni fondamenta (-1 se vuota)
+ * [6..12]   dimensione di ogni colonna del tavolo
+ * [13..19]  indice della prima carta scoperta di ogni colonna
+ * [20..]    carte dello stock, dello scarto e delle colonne, in ordine
+ * </pre>
+ * Una posizione occupa al massimo 72 byte; uguaglianza e hash confrontano
+ * direttamente i byte.
+ */
+public final class BoardState {
+
+    static final int STOCK = 0;
+    static final int SCARTO = 1;
+    static final int FONDAMENTA = 2;
+    static final int DIM_COLONNE = 6;
+    static final int PRIME_SCOPERTE = 13;
+    static final int CARTE = 20;
+
+    private final byte[] dati;
+    private final int hash;
+
+    // Le offset delle colonne sono precalcolate per l'accesso diretto
+    private final byte[] inizioColonna = new byte[7];
+
+    BoardState(byte[] dati) {
+        this.dati = dati;
+        this.hash = Arrays.hashCode(dati);
+        int pos = CARTE + dati[STOCK] + dati[SCARTO];
+        for (int col = 0; col < 7; col++) {
+            inizioColonna[col] = (byte) pos;
+            pos += dati[DIM_COLONNE + col];
+        }
+    }
+
+    // ── Conversione dal modello ──────────────────────────────────────────────
+    public static BoardState fromModel(GameModel modello) {
+        List<GameModel.Card> stock = modello.getStockPile();
+        List<GameModel.Card> scarto = modello.getWastePile();
+        List<List<GameModel.Card>> fondamenta = modello.getFoundations();
+        List<List<GameModel.Card>> tavolo = modello.getTableau();
+
+        int totale = CARTE + stock.size() + scarto.size();
+        for (List<GameModel.Card> colonna : tavolo) {
+            totale += colonna.size();
+        }
+
+        byte[] dati = new byte[totale];
+        dati[STOCK] = (byte) stock.size();
+        dati[SCARTO] = (byte) scarto.size();
+        for (int f = 0; f < 4; f++) {
+            List<GameModel.Card> fonda = fondamenta.get(f);
+            dati[FONDAMENTA + f] = fonda.isEmpty() ? -1 : (byte) fonda.get(fonda.size() - 1).getCode();
+        }
+
+        int pos = CARTE;
+        for (GameModel.Card c : stock) {
+            dati[pos++] = (byte) c.getCode();
+        }
+        for (GameModel.Card c : scarto) {
+            dati[pos++] = (byte) c.getCode();
+        }
+        for (int col = 0; col < 7; col++) {
+            List<GameModel.Card> colonna = tavolo.get(col);
+            for (GameModel.Card c : colonna) {
+                dati[pos++] = (byte) c.getCode();
+            }
+            dati[DIM_COLONNE + col] = (byte) colonna.size();
+            dati[PRIME_SCOPERTE + col] = (byte) modello.getFirstFaceUp(col);
+        }
+        return new BoardState(dati);
+    }
+
+    /**
+     * Posizione iniziale della partita numero dealSeed, identica a quella di
+     * {@link GameModel#initGame(long)} ma costruita senza oggetti Card: adatta
+     * a generare smazzate in massa.
+     */
+    public static BoardState deal(long dealSeed) {
+        return deal(new DealRandom(dealSeed));
+    }
+
+    /**
+     * Prossima smazzata del generatore; ogni thread usa il proprio flusso
+     * (vedi {@link DealRandom#split()}).
+     */
+    public static BoardState deal(DealRandom generatore) {
+        byte[] mazzo = new byte[52];
+        for (int i = 0; i < 52; i++) {
+            mazzo[i] = (byte) i;
+        }
+        GameModel.Deck.mescolaCodici(mazzo, generatore);
+
+        // Si pesca dalla fine del mazzo, come Deck.draw()
+        byte[] dati = new byte[CARTE + 52];
+        int cima = 51;
+        for (int col = 0; col < 7; col++) {
+            dati[DIM_COLONNE + col] = (byte) (col + 1);
+            dati[PRIME_SCOPERTE + col] = (byte) col;
+        }
+        for (int col = 0; col < 7; col++) {
+            int inizio = CARTE + 24 + col * (col + 1) / 2;
+            for (int riga = 0; riga <= col; riga++) {
+                dati[inizio + riga] = mazzo[cima--];
+            }
+        }
+        int pos = CARTE;
+        while (cima >= 0) {
+            dati[pos++] = mazzo[cima--];
+        }
+        dati[STOCK] = 24;
+        dati[SCARTO] = 0;
+        for (int f = 0; f < 4; f++) {
+            dati[FONDAMENTA + f] = -1;
+        }
+        return new BoardState(dati);
+    }
+
+    /**
+     * Ripristina questa posizione nel modello indicato.
+     */
+    public void applyTo(GameModel modello) {
+        modello.setBoardState(this);
+    }
+
+    // ── Accesso alle pile ────────────────────────────────────────────────────
+    public int stockSize() {
+        return dati[STOCK];
+    }
+
+    /** Carta dello stock in posizione i (l'ultima è la cima). */
+    public int stockCard(int i) {
+        return dati[CARTE + i];
+    }
+
+    public int wasteSize() {
+        return dati[SCARTO];
+    }
+
+    /** Carta dello scarto in posizione i (l'ultima è la cima). */
+    public int wasteCard(int i) {
+        return dati[CARTE + dati[STOCK] + i];
+    }
+
+    /** Codice della carta in cima alla fondamenta, -1 se vuota. */
+    public int foundationTop(int f) {
+        return dati[FONDAMENTA + f];
+    }
+
+    public int foundationSize(int f) {
+        int cima = dati[FONDAMENTA + f];
+        return cima < 0 ? 0 : cima % 13 + 1;
+    }
+
+    public int tableauSize(int col) {
+        return dati[DIM_COLONNE + col];
+    }
+
+    public int tableauCard(int col, int i) {
+        return dati[inizioColonna[col] + i];
+    }
+
+    public int firstFaceUp(int col) {
+        return dati[PRIME_SCOPERTE + col];
+    }
+
+    public boolean isWin() {
+        for (int f = 0; f < 4; f++) {
+            if (foundationSize(f) != 13) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ── Forma canonica ───────────────────────────────────────────────────────
+    /**
+     * Rappresentante canonico della classe di posizioni equivalenti: le
+     * regole non distinguono l'ordine delle colonne né la fondamenta in cui
+     * sta un seme. Nella forma canonica ogni seme occupa la fondamenta con il
+     * suo indice e le colonne sono ordinate: prima le vuote, poi per carta
+     * di base crescente (le carte sono tutte diverse, quindi l'ordine è
+     * totale).
+     */
+    public BoardState canonical() {
+        byte[] canonici = new byte[dati.length];
+        System.arraycopy(dati, 0, canonici, 0, CARTE + dati[STOCK] + dati[SCARTO]);
+        for (int f = 0; f < 4; f++) {
+            canonici[FONDAMENTA + f] = -1;
+        }
+        for (int f = 0; f < 4; f++) {
+            int cima = dati[FONDAMENTA + f];
+            if (cima >= 0) {
+                canonici[FONDAMENTA + cima / 13] = (byte) cima;
+            }
+        }
+
+        // Ordinamento per inserzione di 7 elementi sulla chiave di ordinamento
+        int[] ordine = new int[7];
+        for (int i = 0; i < 7; i++) {
+            int col = i;
+            int j = i;
+            while (j > 0 && chiaveOrdinamento(ordine[j - 1]) > chiaveOrdinamento(col)) {
+                ordine[j] = ordine[j - 1];
+                j--;
+            }
+            ordine[j] = col;
+        }
+        int pos = CARTE + dati[STOCK] + dati[SCARTO];
+        for (int i = 0; i < 7; i++) {
+            int col = ordine[i];
+            int dimensione = dati[DIM_COLONNE + col];
+            canonici[DIM_COLONNE + i] = (byte) dimensione;
+            canonici[PRIME_SCOPERTE + i] = dati[PRIME_SCOPERTE + col];
+            System.arraycopy(dati, inizioColonna[col], canonici, pos, dimensione);
+            pos += dimensione;
+        }
+        return new BoardState(canonici);
+    }
+
+    private int chiaveOrdinamento(int col) {
+        return dati[DIM_COLONNE + col] == 0 ? -1 : tableauCard(col, 0);
+    }
+
+    /**
+     * Chiave a 64 bit della classe di equivalenza: uguale per tutte le
+     * posizioni con la stessa {@link #canonical()} ed è quella usata dal
+     * solver per le posizioni visitate.
+     */
+    public long canonicalKey() {
+        return new TavoloRicerca(this, 1).chiave();
+    }
+
+    /**
+     * Copia dei byte grezzi, ad esempio per salvarli su disco.
+     */
+    public byte[] toBytes() {
+        return dati.clone();
+    }
+
+    public static BoardState fromBytes(byte[] dati) {
+        return new BoardState(dati.clone());
+    }
+
+    // ── Uguaglianza per valore ───────────────────────────────────────────────
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BoardState altro)) {
+            return false;
+        }
+        return hash == altro.hash && Arrays.equals(dati, altro.dati);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,344 @@
+package solitairegame;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * CACHE DELLE ANALISI - Archivio su disco dei verdetti del solver per
+ * smazzata (numero di partita + difficoltà), mappato in memoria.
+ *
+ * Il file è una tabella hash a indirizzamento aperto di record di
+ * lunghezza fissa, quindi una ricerca costa la lettura di una pagina invece
+ * di una nuova analisi. Più processi possono leggere insieme; chi scrive
+ * prende un {@link FileLock} esclusivo sul file. Ogni record ha un
+ * controllo: un record letto a metà di una scrittura viene trattato come
+ * assente.
+ *
+ * Formato:
+ * <pre>
+ * header (64 byte): magic, versione, capacità, dimensione record, occupati
+ * record (32 byte): [0] seme, [8] stato, difficoltà, esito, -,
+ *                   [12] lunghezza soluzione, [16] nodi, [24] millisecondi,
+ *                   [28] controllo
+ * </pre>
+ * Come {@link TabellaConcorrente} la capacità è fissa: oltre il 75% di
+ * riempimento i nuovi verdetti non vengono più salvati.
+ *
+ * Si salvano solo i verdetti definitivi. {@link Solver.Esito#INDETERMINATO}
+ * dice soltanto che il budget di nodi o di tempo è finito, e il tempo
+ * dipende dalla macchina: una nuova analisi, magari con più budget, può
+ * concludere.
+ *
+ * Uso: CacheAnalisi file [partite] [FACILE|DIFFICILE]
+ */
+public final class CacheAnalisi implements Closeable {
+
+    public static final int CAPACITA_PREDEFINITA = 1 << 18;
+
+    private static final int MAGIC = 0x534F4C41; // "SOLA"
+    private static final int VERSIONE = 1;
+    private static final int HEADER = 64;
+    private static final int RECORD = 32;
+    private static final int OFFSET_OCCUPATI = 16;
+
+    private static final byte VUOTO = 0;
+    private static final byte VALIDO = 1;
+
+    // ── Voce della cache ─────────────────────────────────────────────────────
+    public static final class Voce {
+
+        private final Solver.Esito esito;
+        private final int lunghezzaSoluzione;
+        private final long nodi;
+        private final int millisecondi;
+
+        Voce(Solver.Esito esito, int lunghezzaSoluzione, long nodi, int millisecondi) {
+            this.esito = esito;
+            this.lunghezzaSoluzione = lunghezzaSoluzione;
+            this.nodi = nodi;
+            this.millisecondi = millisecondi;
+        }
+
+        public Solver.Esito getEsito() {
+            return esito;
+        }
+
+        public boolean isWinnable() {
+            return esito == Solver.Esito.VINCIBILE;
+        }
+
+        public int getLunghezzaSoluzione() {
+            return lunghezzaSoluzione;
+        }
+
+        public long getNodi() {
+            return nodi;
+        }
+
+        public int getMillisecondi() {
+            return millisecondi;
+        }
+
+        @Override
+        public String toString() {
+            return esito + " (" + lunghezzaSoluzione + " mosse, " + nodi + " nodi, " + millisecondi + " ms)";
+        }
+    }
+
+    private final FileChannel canale;
+    private final MappedByteBuffer mappa;
+    private final int capacita;
+    private final boolean sola;
+
+    private CacheAnalisi(FileChannel canale, MappedByteBuffer mappa, int capacita, boolean sola) {
+        this.canale = canale;
+        this.mappa = mappa;
+        this.capacita = capacita;
+        this.sola = sola;
+    }
+
+    /**
+     * Apre in lettura e scrittura, creando il file con la capacità
+     * predefinita se non esiste.
+     */
+    public static CacheAnalisi apri(Path file) throws IOException {
+        return apri(file, CAPACITA_PREDEFINITA);
+    }
+
+    /**
+     * Apre in lettura e scrittura; la capacità (potenza di due) conta solo
+     * se il file viene creato.
+     */
+    public static CacheAnalisi apri(Path file, int capacita) throws IOException {
+        if (Integer.bitCount(capacita) != 1) {
+            throw new IllegalArgumentException("La capacità deve essere una potenza di due: " + capacita);
+        }
+        FileChannel canale = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            // Il primo processo che crea il file scrive l'header sotto lock
+            try (FileLock lock = canale.lock()) {
+                if (canale.size() == 0) {
+                    MappedByteBuffer nuovo = canale.map(FileChannel.MapMode.READ_WRITE, 0,
+                            HEADER + (long) capacita * RECORD);
+                    nuovo.putInt(4, VERSIONE);
+                    nuovo.putInt(8, capacita);
+                    nuovo.putInt(12, RECORD);
+                    nuovo.putInt(0, MAGIC);
+                    nuovo.force();
+                }
+            }
+            int capacitaFile = leggiHeader(canale, file);
+            MappedByteBuffer mappa = canale.map(FileChannel.MapMode.READ_WRITE, 0,
+                    HEADER + (long) capacitaFile * RECORD);
+            return new CacheAnalisi(canale, mappa, capacitaFile, false);
+        } catch (IOException | RuntimeException e) {
+            canale.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Apre un file esistente in sola lettura: nessun lock, adatto a molti
+     * processi di analisi in parallelo.
+     */
+    public static CacheAnalisi apriInLettura(Path file) throws IOException {
+        FileChannel canale = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            int capacita = leggiHeader(canale, file);
+            MappedByteBuffer mappa = canale.map(FileChannel.MapMode.READ_ONLY, 0,
+                    HEADER + (long) capacita * RECORD);
+            return new CacheAnalisi(canale, mappa, capacita, true);
+        } catch (IOException | RuntimeException e) {
+            canale.close();
+            throw e;
+        }
+    }
+
+    private static int leggiHeader(FileChannel canale, Path file) throws IOException {
+        if (canale.size() < HEADER) {
+            throw new IOException("File di cache non valido: " + file);
+        }
+        MappedByteBuffer header = canale.map(FileChannel.MapMode.READ_ONLY, 0, HEADER);
+        int capacita = header.getInt(8);
+        if (header.getInt(0) != MAGIC || header.getInt(4) != VERSIONE || header.getInt(12) != RECORD
+                || Integer.bitCount(capacita) != 1 || canale.size() < HEADER + (long) capacita * RECORD) {
+            throw new IOException("File di cache non valido: " + file);
+        }
+        return capacita;
+    }
+
+    // ── Lettura ──────────────────────────────────────────────────────────────
+    /**
+     * Verdetto salvato per la smazzata, null se assente.
+     */
+    public Voce cerca(long seme, GameModel.Difficulty difficolta) {
+        int slot = trova(seme, difficolta);
+        if (slot < 0) {
+            return null;
+        }
+        int base = offset(slot);
+        if (mappa.get(base + 8) != VALIDO) {
+            return null;
+        }
+        int lunghezza = mappa.getInt(base + 12);
+        long nodi = mappa.getLong(base + 16);
+        int millis = mappa.getInt(base + 24);
+        byte esito = mappa.get(base + 10);
+        if (mappa.getInt(base + 28) != controllo(seme, difficolta.ordinal(), esito, lunghezza, nodi, millis)
+                || esito < 0 || esito >= Solver.Esito.values().length) {
+            return null; // record in scrittura o danneggiato
+        }
+        return new Voce(Solver.Esito.values()[esito], lunghezza, nodi, millis);
+    }
+
+    public int size() {
+        return mappa.getInt(OFFSET_OCCUPATI);
+    }
+
+    public int getCapacita() {
+        return capacita;
+    }
+
+    // ── Scrittura ────────────────────────────────────────────────────────────
+    /**
+     * Salva (o aggiorna) il verdetto della smazzata. Ritorna false se la
+     * cache è piena o il verdetto è INDETERMINATO, che non viene salvato.
+     */
+    public synchronized boolean registra(long seme, GameModel.Difficulty difficolta,
+            Solver.Risultato risultato) throws IOException {
+        if (sola) {
+            throw new IllegalStateException("Cache aperta in sola lettura");
+        }
+        if (risultato.getEsito() == Solver.Esito.INDETERMINATO) {
+            return false;
+        }
+        try (FileLock lock = canale.lock()) {
+            int slot = trova(seme, difficolta);
+            boolean nuovo = slot < 0;
+            if (nuovo) {
+                if (size() >= capacita / 4 * 3) {
+                    return false;
+                }
+                slot = -slot - 1;
+            }
+            int base = offset(slot);
+            byte esito = (byte) risultato.getEsito().ordinal();
+            int lunghezza = risultato.getMosse().length;
+            long nodi = risultato.getNodi();
+            int millis = (int) Math.min(Integer.MAX_VALUE, risultato.getMillisecondi());
+
+            // Prima i dati e il controllo, per ultimo lo stato che pubblica il record
+            mappa.putLong(base, seme);
+            mappa.put(base + 9, (byte) difficolta.ordinal());
+            mappa.put(base + 10, esito);
+            mappa.putInt(base + 12, lunghezza);
+            mappa.putLong(base + 16, nodi);
+            mappa.putInt(base + 24, millis);
+            mappa.putInt(base + 28, controllo(seme, difficolta.ordinal(), esito, lunghezza, nodi, millis));
+            mappa.put(base + 8, VALIDO);
+            if (nuovo) {
+                mappa.putInt(OFFSET_OCCUPATI, size() + 1);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Verdetto della smazzata: dalla cache se presente, altrimenti risolta
+     * con il solver e salvata se definitiva. Un INDETERMINATO già nel file
+     * (scritto da versioni precedenti) viene analizzato di nuovo.
+     */
+    public Voce analizza(long seme, GameModel.Difficulty difficolta, Solver solver) throws IOException {
+        Voce voce = cerca(seme, difficolta);
+        if (voce != null && voce.getEsito() != Solver.Esito.INDETERMINATO) {
+            return voce;
+        }
+        Solver.Risultato risultato = solver.risolvi(BoardState.deal(seme), difficolta);
+        if (!sola) {
+            registra(seme, difficolta, risultato);
+        }
+        return new Voce(risultato.getEsito(), risultato.getMosse().length,
+                risultato.getNodi(), (int) Math.min(Integer.MAX_VALUE, risultato.getMillisecondi()));
+    }
+
+    /**
+     * Scrive su disco le modifiche ancora in memoria.
+     */
+    public void flush() {
+        if (!sola) {
+            mappa.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        canale.close();
+    }
+
+    // ── Tabella hash ─────────────────────────────────────────────────────────
+    /**
+     * Slot della smazzata, oppure -(slot libero) - 1 se non c'è.
+     */
+    private int trova(long seme, GameModel.Difficulty difficolta) {
+        int maschera = capacita - 1;
+        int slot = (int) TavoloRicerca.finalizza(seme * 2 + difficolta.ordinal()) & maschera;
+        for (int tentativi = 0; tentativi < capacita; tentativi++) {
+            int base = offset(slot);
+            if (mappa.get(base + 8) == VUOTO) {
+                return -slot - 1;
+            }
+            if (mappa.getLong(base) == seme && mappa.get(base + 9) == difficolta.ordinal()) {
+                return slot;
+            }
+            slot = (slot + 1) & maschera;
+        }
+        return -1;
+    }
+
+    private static int offset(int slot) {
+        return HEADER + slot * RECORD;
+    }
+
+    private static int controllo(long seme, int difficolta, byte esito, int lunghezza, long nodi, int millis) {
+        long h = TavoloRicerca.finalizza(seme ^ (long) difficolta << 56 ^ (long) esito << 48);
+        h = TavoloRicerca.finalizza(h + ((long) lunghezza << 32 | millis & 0xFFFFFFFFL));
+        h = TavoloRicerca.finalizza(h + nodi);
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // ── Entry point ──────────────────────────────────────────────────────────
+    public static void main(String[] args) throws IOException {
+        Path file = Paths.get(args.length > 0 ? args[0] : "analisi.cache");
+        int partite = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        GameModel.Difficulty difficolta = args.length > 2
+                ? GameModel.Difficulty.valueOf(args[2]) : GameModel.Difficulty.FACILE;
+
+        boolean esisteva = Files.exists(file);
+        try (CacheAnalisi cache = apri(file)) {
+            Solver solver = new Solver();
+            long inizio = System.nanoTime();
+            int trovate = 0, vinte = 0;
+            for (long seme = 1; seme <= partite; seme++) {
+                if (cache.cerca(seme, difficolta) != null) {
+                    trovate++;
+                }
+                if (cache.analizza(seme, difficolta, solver).isWinnable()) {
+                    vinte++;
+                }
+            }
+            double ms = (System.nanoTime() - inizio) / 1e6;
+            System.out.printf("%s %s: %d partite, %d già in cache, %d vincibili, %.1f ms (%d voci%s)%n",
+                    file, difficolta, partite, trovate, vinte, ms, cache.size(),
+                    esisteva ? "" : ", file nuovo");
+        }
+    }
+}
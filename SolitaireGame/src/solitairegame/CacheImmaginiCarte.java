@@ -0,0 +1,358 @@
+package solitairegame;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+/**
+ * CACHE IMMAGINI CARTE - Sprite delle carte già scalati alla dimensione di
+ * disegno, nel formato dello schermo.
+ *
+ * Le immagini originali (500x726, 200x290 nell'atlante) vengono
+ * decodificate, ridotte a metà più volte fino alla dimensione della carta
+ * e disegnate su un'immagine compatibile insieme al bordo arrotondato; poi
+ * l'originale viene scartato. Disegnare
+ * una carta diventa una copia di pixel senza ridimensionamento. Gli sprite
+ * sono fatti per una scala del dispositivo (HiDPI): se la scala cambia
+ * vengono ricostruiti rileggendo le immagini.
+ *
+ * Le immagini vengono dall'atlante impacchettato nel classpath
+ * ({@link AtlanteCarte}), oppure dai file di cards_images se l'atlante
+ * manca. La decodifica gira su thread in background: finché lo
+ * sprite di una carta non è pronto {@link #getFaccia} ritorna null e la
+ * vista disegna la carta vettoriale, quindi la finestra appare subito
+ * qualunque sia il numero di immagini. Ogni sprite viene pubblicato
+ * sull'EDT, che poi esegue l'aggiornamento passato al costruttore.
+ *
+ * Il dorso viene sempre da qui: dal disegno vettoriale finché l'immagine
+ * (se c'è) non è pronta. Anche gli spazi vuoti (stock, scarto, fondamenta,
+ * colonne) sono sprite, così disegnare il tavolo non alloca nulla.
+ *
+ * Le facce stanno in un array indicizzato dal codice carta. Tutti i metodi
+ * vanno chiamati dall'EDT.
+ */
+final class CacheImmaginiCarte {
+
+    // Lo sprite della faccia include 1 pixel di bordo grigio per lato
+    static final int BORDO = 1;
+
+    // Spazi vuoti: indice dello sprite restituito da getSlot
+    static final int SLOT_STOCK = 0;
+    static final int SLOT_SCARTO = 1;
+    static final int SLOT_FONDAMENTA = 2; // + indice della fondamenta (0-3)
+    static final int SLOT_COLONNA = 6;
+    private static final String[] SIMBOLI_SLOT = {"↻", "", "♥", "♦", "♣", "♠", "K"};
+
+    // Nomi dei file nell'ordine degli enum di GameModel.Card
+    private static final String[] SEMI = {"hearts", "diamonds", "clubs", "spades"};
+    private static final String[] RANGHI = {"ace", "2", "3", "4", "5", "6", "7", "8", "9", "10",
+        "jack", "queen", "king"};
+
+    private static final Color GRIGIO_BORDO = new Color(200, 200, 200);
+    private static final Color SIMBOLO_SLOT = new Color(255, 255, 255, 80);
+
+    private final int larghezza;
+    private final int altezza;
+    private final File cartella; // cards_images, può non esistere
+    private final Runnable aggiornamento;
+
+    private final BufferedImage[] facce = new BufferedImage[52];
+    private final BufferedImage[] slot = new BufferedImage[SIMBOLI_SLOT.length];
+    private BufferedImage retro;
+    private GraphicsConfiguration configurazione = null;
+    private double scala = 0; // scala del dispositivo degli sprite attuali, 0 = nessuno
+
+    // Caricamento in corso: gli sprite di una generazione precedente
+    // (scala cambiata nel frattempo) vengono scartati
+    private int generazione = 0;
+    private int inAttesa = 0;
+
+    /**
+     * aggiornamento viene eseguito sull'EDT ogni volta che uno sprite
+     * caricato in background sostituisce il disegno vettoriale.
+     */
+    CacheImmaginiCarte(int larghezza, int altezza, File cartella, Runnable aggiornamento) {
+        this.larghezza = larghezza;
+        this.altezza = altezza;
+        this.cartella = cartella;
+        this.aggiornamento = aggiornamento;
+    }
+
+    /**
+     * Prepara gli sprite per la configurazione grafica indicata (null =
+     * nessuno schermo, scala 1). Chiamato a ogni paint: con la stessa
+     * configurazione non fa nulla, con un'altra rifà gli sprite solo se la
+     * scala del dispositivo è diversa. Non blocca: spazi vuoti e dorso
+     * vettoriale sono pronti subito, le immagini arrivano dopo.
+     */
+    void prepara(GraphicsConfiguration nuova) {
+        if (nuova == configurazione && scala != 0) {
+            return;
+        }
+        configurazione = nuova;
+        double nuovaScala = nuova != null ? nuova.getDefaultTransform().getScaleX() : 1;
+        if (nuovaScala == scala) {
+            return;
+        }
+        scala = nuovaScala;
+
+        // Disegni vettoriali: pochi millisecondi, subito sull'EDT
+        for (int i = 0; i < slot.length; i++) {
+            slot[i] = creaSlot(nuova, nuovaScala, SIMBOLI_SLOT[i]);
+        }
+        retro = creaRetro(nuova, nuovaScala, null);
+        for (int codice = 0; codice < facce.length; codice++) {
+            facce[codice] = null;
+        }
+        caricaInBackground(nuova, nuovaScala);
+    }
+
+    /**
+     * Sprite della faccia, null se l'immagine non c'è o non è ancora
+     * pronta. Va disegnato in (x - BORDO, y - BORDO) con dimensione logica
+     * (larghezza + 2 * BORDO) x (altezza + 2 * BORDO).
+     */
+    BufferedImage getFaccia(int codice) {
+        return facce[codice];
+    }
+
+    /**
+     * Sprite di uno spazio vuoto (SLOT_*), con la dimensione della carta.
+     */
+    BufferedImage getSlot(int indice) {
+        return slot[indice];
+    }
+
+    /**
+     * Sprite del dorso, da disegnare in (x, y) con la dimensione della carta.
+     */
+    BufferedImage getRetro() {
+        return retro;
+    }
+
+    /**
+     * true quando non ci sono immagini ancora da caricare.
+     */
+    boolean isCompleta() {
+        return inAttesa == 0;
+    }
+
+    // ── Caricamento in background ────────────────────────────────────────────
+    /**
+     * Con l'atlante nel classpath un solo thread lo legge e lo affetta;
+     * altrimenti (classi compilate senza la build) i file di cards_images
+     * vengono decodificati in parallelo.
+     */
+    private void caricaInBackground(GraphicsConfiguration config, double scalaSprite) {
+        int richiesta = ++generazione;
+        inAttesa = AtlanteCarte.DORSO + 1;
+        URL risorsa = AtlanteCarte.risorsa();
+        int thread = risorsa != null ? 1 : Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), 8));
+        ExecutorService esecutore = Executors.newFixedThreadPool(thread, r -> {
+            Thread t = new Thread(r, "immagini-carte");
+            t.setDaemon(true);
+            return t;
+        });
+        if (risorsa != null) {
+            esecutore.execute(() -> {
+                AtlanteCarte atlante = null;
+                try {
+                    atlante = AtlanteCarte.leggi(risorsa);
+                } catch (IOException e) {
+                    System.err.println("❌ " + e.getMessage());
+                }
+                for (int codice = 0; codice <= AtlanteCarte.DORSO; codice++) {
+                    carica(richiesta, config, scalaSprite, atlante, codice);
+                }
+            });
+        } else {
+            for (int codice = 0; codice <= AtlanteCarte.DORSO; codice++) {
+                int c = codice;
+                esecutore.execute(() -> carica(richiesta, config, scalaSprite, null, c));
+            }
+        }
+        esecutore.shutdown(); // i thread terminano a lavoro finito
+    }
+
+    // Crea e pubblica lo sprite di una carta (o del dorso), dall'atlante se c'è
+    private void carica(int richiesta, GraphicsConfiguration config, double scalaSprite,
+            AtlanteCarte atlante, int codice) {
+        BufferedImage originale;
+        if (atlante != null) {
+            originale = atlante.get(codice);
+        } else {
+            File file = codice == AtlanteCarte.DORSO ? fileRetro(cartella) : fileCarta(cartella, codice);
+            originale = file != null ? leggi(file) : null;
+        }
+        if (codice == AtlanteCarte.DORSO) {
+            BufferedImage sprite = originale != null ? creaRetro(config, scalaSprite, originale) : null;
+            pubblica(richiesta, () -> retro = sprite, sprite != null);
+        } else {
+            BufferedImage sprite = originale != null ? creaFaccia(config, scalaSprite, originale) : null;
+            pubblica(richiesta, () -> facce[codice] = sprite, sprite != null);
+        }
+    }
+
+    // Porta il risultato sull'EDT, se la richiesta è ancora quella attuale
+    private void pubblica(int richiesta, Runnable installa, boolean cambiato) {
+        SwingUtilities.invokeLater(() -> {
+            if (richiesta != generazione) {
+                return;
+            }
+            inAttesa--;
+            if (cambiato) {
+                installa.run();
+                aggiornamento.run();
+            }
+        });
+    }
+
+    /**
+     * File della carta in cards_images, null se manca: figure con il
+     * suffisso "2"; l'asso di picche usa la versione decorata, se c'è.
+     */
+    static File fileCarta(File cartella, int codice) {
+        int seme = codice / 13;
+        int rango = codice % 13;
+        String nome = RANGHI[rango] + "_of_" + SEMI[seme];
+        File decorata = new File(cartella, nome + "2.png");
+        if ((rango >= 10 || rango == 0 && seme == 3) && decorata.isFile()) {
+            return decorata;
+        }
+        File file = new File(cartella, nome + ".png");
+        return file.isFile() ? file : null;
+    }
+
+    /**
+     * Immagine del dorso in cards_images, null se non c'è.
+     */
+    static File fileRetro(File cartella) {
+        File[] retri = cartella.listFiles((d, n) -> {
+            String l = n.toLowerCase();
+            return l.contains("back") || l.contains("blue") || l.contains("dorso");
+        });
+        return retri != null && retri.length > 0 ? retri[0] : null;
+    }
+
+    // ── Costruzione degli sprite ─────────────────────────────────────────────
+    // Le costruzioni ricevono configurazione e scala: girano anche fuori dall'EDT
+    private BufferedImage creaFaccia(GraphicsConfiguration config, double scala, BufferedImage originale) {
+        int w = larghezza + 2 * BORDO;
+        int h = altezza + 2 * BORDO;
+        BufferedImage sprite = creaCompatibile(config, scala, w, h);
+        Graphics2D g = sprite.createGraphics();
+        g.scale(scala, scala);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(GRIGIO_BORDO);
+        g.fillRoundRect(0, 0, w, h, 12, 12);
+        // L'immagine ridotta ha già la dimensione in pixel del dispositivo
+        g.drawImage(riduci(originale, pixel(larghezza, scala), pixel(altezza, scala)),
+                BORDO, BORDO, larghezza, altezza, null);
+        g.dispose();
+        return sprite;
+    }
+
+    private BufferedImage creaRetro(GraphicsConfiguration config, double scala, BufferedImage originale) {
+        BufferedImage sprite = creaCompatibile(config, scala, larghezza, altezza);
+        Graphics2D g = sprite.createGraphics();
+        g.scale(scala, scala);
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        if (originale != null) {
+            g.drawImage(riduci(originale, pixel(larghezza, scala), pixel(altezza, scala)),
+                    0, 0, larghezza, altezza, null);
+        } else {
+            disegnaRetroVettoriale(g, larghezza, altezza);
+        }
+        g.dispose();
+        return sprite;
+    }
+
+    private static void disegnaRetroVettoriale(Graphics2D g2d, int larghezza, int altezza) {
+        GradientPaint gradiente = new GradientPaint(
+                0, 0, new Color(20, 60, 140),
+                larghezza, altezza, new Color(40, 90, 180));
+        g2d.setPaint(gradiente);
+        g2d.fillRoundRect(0, 0, larghezza, altezza, 12, 12);
+        g2d.setColor(GameView.ORO_SCURO);
+        g2d.setStroke(new BasicStroke(3));
+        g2d.drawRoundRect(3, 3, larghezza - 6, altezza - 6, 10, 10);
+        g2d.setColor(new Color(255, 255, 255, 40));
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < 5; j++) {
+                g2d.fillOval(18 + i * 22, 18 + j * 28, 10, 10);
+            }
+        }
+        g2d.setColor(GameView.ORO);
+        int cx = larghezza / 2, cy = altezza / 2;
+        g2d.fillPolygon(new int[]{cx, cx + 18, cx, cx - 18}, new int[]{cy - 25, cy, cy + 25, cy}, 4);
+    }
+
+    private BufferedImage creaSlot(GraphicsConfiguration config, double scala, String simbolo) {
+        BufferedImage sprite = creaCompatibile(config, scala, larghezza, altezza);
+        Graphics2D g2d = sprite.createGraphics();
+        g2d.scale(scala, scala);
+        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g2d.setColor(GameView.VERDE_SCURO);
+        g2d.fillRoundRect(0, 0, larghezza, altezza, 12, 12);
+        g2d.setColor(GameView.VERDE_CHIARO);
+        g2d.setStroke(new BasicStroke(2.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                0, new float[]{8, 6}, 0));
+        g2d.drawRoundRect(4, 4, larghezza - 8, altezza - 8, 10, 10);
+        if (!simbolo.isEmpty()) {
+            g2d.setColor(SIMBOLO_SLOT);
+            g2d.setFont(new Font("Arial", Font.BOLD, 48));
+            FontMetrics fm = g2d.getFontMetrics();
+            g2d.drawString(simbolo,
+                    (larghezza - fm.stringWidth(simbolo)) / 2,
+                    ((altezza - fm.getHeight()) / 2) + fm.getAscent());
+        }
+        g2d.dispose();
+        return sprite;
+    }
+
+    private static BufferedImage creaCompatibile(GraphicsConfiguration config, double scala, int w, int h) {
+        if (config != null) {
+            return config.createCompatibleImage(pixel(w, scala), pixel(h, scala), Transparency.TRANSLUCENT);
+        }
+        return new BufferedImage(pixel(w, scala), pixel(h, scala), BufferedImage.TYPE_INT_ARGB_PRE);
+    }
+
+    private static int pixel(int logici, double scala) {
+        return (int) Math.ceil(logici * scala);
+    }
+
+    /**
+     * Riduzione a passi dimezzati con interpolazione bilineare: un solo
+     * passo da 500 a 100 pixel salterebbe righe e perderebbe dettagli.
+     */
+    static BufferedImage riduci(BufferedImage originale, int w, int h) {
+        BufferedImage corrente = originale;
+        int cw = originale.getWidth(), ch = originale.getHeight();
+        do {
+            cw = Math.max(w, cw / 2);
+            ch = Math.max(h, ch / 2);
+            BufferedImage passo = new BufferedImage(cw, ch, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = passo.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(corrente, 0, 0, cw, ch, null);
+            g.dispose();
+            corrente = passo;
+        } while (cw != w || ch != h);
+        return corrente;
+    }
+
+    private static BufferedImage leggi(File file) {
+        try {
+            return ImageIO.read(file);
+        } catch (IOException e) {
+            System.err.println("❌ " + e.getMessage());
+            return null;
+        }
+    }
+}
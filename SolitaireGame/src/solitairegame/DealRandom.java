@@ -0,0 +1,58 @@
+package solitairegame;
+
+/**
+ * Generatore pseudo-casuale SplitMix64 usato per mescolare il mazzo.
+ *
+ * A differenza di {@link java.util.Random} l'algoritmo è fissato qui, quindi
+ * lo stesso numero di partita produce la stessa smazzata su qualsiasi JVM.
+ * È molto veloce (poche operazioni per numero, nessuna sincronizzazione) e
+ * {@link #split()} crea flussi indipendenti da dare a thread diversi.
+ */
+public final class DealRandom {
+
+    private static final long GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long stato;
+
+    public DealRandom(long seme) {
+        this.stato = seme;
+    }
+
+    public long nextLong() {
+        long z = (stato += GAMMA);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Intero uniforme in [0, limite), metodo moltiplicativo di Lemire senza
+     * bias.
+     */
+    public int nextInt(int limite) {
+        long m = (nextLong() >>> 32) * limite;
+        long basso = m & 0xFFFFFFFFL;
+        if (basso < limite) {
+            long soglia = (0x100000000L - limite) % limite;
+            while (basso < soglia) {
+                m = (nextLong() >>> 32) * limite;
+                basso = m & 0xFFFFFFFFL;
+            }
+        }
+        return (int) (m >>> 32);
+    }
+
+    /**
+     * Nuovo generatore indipendente da questo, per un altro thread.
+     */
+    public DealRandom split() {
+        return new DealRandom(nextLong());
+    }
+
+    /**
+     * Numero di partita casuale, abbastanza corto da essere letto e condiviso.
+     */
+    public static long nuovoNumeroPartita() {
+        return new DealRandom(System.nanoTime()).nextLong() >>> 33;
+    }
+}
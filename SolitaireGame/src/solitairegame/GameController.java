@@ -3,6 +3,9 @@ package solitairegame;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -23,18 +26,40 @@ public class GameController {
     private Point posizioneMouse = null;
     private Point offsetDrag = new Point(0, 0);
 
+    // ── Animazioni ────────────────────────────────────────────────────────────
+    private final Animazioni animazioni = new Animazioni(); // voli e replay
+
     // ── Auto-completamento animato ────────────────────────────────────────────
     private boolean autoCompletamentoAttivo = false;
-    private GameModel.Card cartaInVolo = null;
-    private Point posizioneVoloPartenza = null;
-    private Point posizioneVoloArrivo = null;
-    private Point posizioneVoloAttuale = null;
-    private int frameVoloCorrente = 0;
-    private javax.swing.Timer timerVolo = null;
-
-    private static final int INTERVALLO_FRAME_MS = 16;  // ~60fps
-    private static final int FRAME_PER_VOLO = 20;       // durata singolo volo
-    private static final int PAUSA_TRA_CARTE_MS = 60;   // pausa tra carte
+    private int sessioneAutoCompletamento = 0; // passi e voli di una sessione fermata non fanno nulla
+    private int voliInCorso = 0;
+    private boolean passoInAttesa = false;
+
+    private static final long PAUSA_INIZIALE_NS = 400_000_000L;    // prima della prima carta
+    private static final long DURATA_VOLO_NS = 320_000_000L;      // durata singolo volo
+    private static final long PARTENZA_TRA_CARTE_NS = 110_000_000L; // la carta dopo parte con questa in volo
+
+    // ── Suggerimenti ──────────────────────────────────────────────────────────
+    private final MotoreSuggerimenti suggerimenti = new MotoreSuggerimenti();
+    private boolean suggerimentoAttivo = false; // richiesto o mostrato
+    private long hashSuggerimento;               // Zobrist della posizione per cui vale
+
+    // ── Salvataggio automatico ────────────────────────────────────────────────
+    private final Path fileSalvataggio = SalvataggioPartita.percorsoPredefinito();
+
+    // ── Statistiche ───────────────────────────────────────────────────────────
+    private ArchivioStatistiche statistiche = null; // null se lo storico non si apre
+
+    // ── Replay ────────────────────────────────────────────────────────────────
+    private static final long PASSO_REPLAY_NS = 400_000_000L; // 1x: una mossa ogni 400 ms
+    private static final int REPLAY_ISTANTANEO = 2;          // indice in replaySpeed
+    private JComboBox<?> velocitaReplay = null;
+    private JButton bottoneReplay = null;
+    private GameModel riproduzione = null;   // partita mostrata durante il replay
+    private long passoReplayNs;             // 0 = istantaneo, nessun avanzamento
+    private long inizioReplayNs;
+    private int mossaInizioReplay;
+    private boolean avanzamentoReplay = false; // animazione del replay attiva
 
     // ── Costruttore ──────────────────────────────────────────────────────────
     public GameController(GameModel modello, GameView vista) {
@@ -45,19 +70,63 @@ public class GameController {
         registraListenerMouse();
         registraListenerBottoni();
         avviaTimer();
+        try {
+            statistiche = ArchivioStatistiche.apri(ArchivioStatistiche.percorsoPredefinito());
+        } catch (IOException ex) {
+            System.out.println(ex);
+        }
+        vista.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                salvaPartita(); // conserva anche i secondi dall'ultima mossa
+            }
+        });
 
-        GameModel.Difficulty difficoltaScelta = vista.mostraDialogoDifficolta();
-        modello.setDifficulty(difficoltaScelta);
-        vista.updateDifficultyLabel(difficoltaScelta == GameModel.Difficulty.FACILE ? "Facile" : "Difficile");
-
-        modello.initGame();
+        // Riprende la partita lasciata a metà, altrimenti ne inizia una nuova
+        if (!caricaPartita()) {
+            GameModel.Difficulty difficoltaScelta = vista.mostraDialogoDifficolta();
+            modello.setDifficulty(difficoltaScelta);
+            modello.initGame();
+        }
+        vista.updateDifficultyLabel(
+                modello.getDifficulty() == GameModel.Difficulty.FACILE ? "Facile" : "Difficile");
         aggiornaVista();
     }
 
+    // ── Salvataggio ──────────────────────────────────────────────────────────
+    private boolean caricaPartita() {
+        try {
+            return SalvataggioPartita.carica(modello, fileSalvataggio);
+        } catch (IOException ex) {
+            System.out.println(ex);
+            return false;
+        }
+    }
+
+    private void registraPartita(ArchivioStatistiche.Esito esito) {
+        if (statistiche == null) {
+            return;
+        }
+        try {
+            statistiche.registra(modello.getDealSeed(), modello.getDifficulty(),
+                    modello.getElapsedSeconds(), modello.getMoveCount(), esito);
+        } catch (IOException ex) {
+            System.out.println(ex);
+        }
+    }
+
+    private void salvaPartita() {
+        try {
+            SalvataggioPartita.salva(modello, fileSalvataggio);
+        } catch (IOException ex) {
+            System.out.println(ex);
+        }
+    }
+
     // ── Timer secondi ────────────────────────────────────────────────────────
     private void avviaTimer() {
         javax.swing.Timer timer = new javax.swing.Timer(1000, e -> {
-            if (!autoCompletamentoAttivo) {
+            if (!inputBloccato()) {
                 modello.tickTimer();
                 vista.updateTimerLabel(modello.getElapsedSeconds());
             }
@@ -70,11 +139,15 @@ public class GameController {
         JPanel pannelloInferiore = (JPanel) ((BorderLayout) vista.getContentPane().getLayout())
                 .getLayoutComponent(BorderLayout.SOUTH);
 
-        for (Component c : pannelloInferiore.getComponents()) {
+        for (Component c : componentiDi(pannelloInferiore, new ArrayList<>())) {
             if (c instanceof JButton bottone) {
                 if ("newGameButton".equals(bottone.getName())) {
                     bottone.addActionListener(e -> {
                         fermaAutoCompletamento();
+                        fermaRiproduzione();
+                        if (modello.isGameStarted()) {
+                            registraPartita(ArchivioStatistiche.Esito.ABBANDONATA);
+                        }
                         GameModel.Difficulty difficoltaScelta = vista.mostraDialogoDifficolta();
                         modello.setDifficulty(difficoltaScelta);
                         vista.updateDifficultyLabel(
@@ -84,7 +157,7 @@ public class GameController {
                     });
                 } else if ("undoButton".equals(bottone.getName())) {
                     bottone.addActionListener(e -> {
-                        if (autoCompletamentoAttivo) return;
+                        if (inputBloccato()) return;
                         if (!modello.annullaMossa()) {
                             JOptionPane.showMessageDialog(vista,
                                     "Nessuna mossa da annullare.",
@@ -92,18 +165,206 @@ public class GameController {
                         }
                         aggiornaVista();
                     });
+                } else if ("hintButton".equals(bottone.getName())) {
+                    bottone.addActionListener(e -> {
+                        if (inputBloccato() || suggerimenti.isInCorso()) return;
+                        richiediSuggerimento();
+                    });
+                } else if ("redoButton".equals(bottone.getName())) {
+                    bottone.addActionListener(e -> {
+                        if (inputBloccato()) return;
+                        if (!modello.ripetiMossa()) {
+                            JOptionPane.showMessageDialog(vista,
+                                    "Nessuna mossa da ripetere.",
+                                    "Redo", JOptionPane.INFORMATION_MESSAGE);
+                        }
+                        aggiornaVista();
+                    });
+                } else if ("statsButton".equals(bottone.getName())) {
+                    bottone.addActionListener(e -> {
+                        if (statistiche == null) {
+                            JOptionPane.showMessageDialog(vista,
+                                    "Lo storico delle partite non è disponibile.",
+                                    "Statistiche", JOptionPane.INFORMATION_MESSAGE);
+                            return;
+                        }
+                        vista.showStatisticsDialog(statistiche.getRiepilogo(GameModel.Difficulty.FACILE),
+                                statistiche.getRiepilogo(GameModel.Difficulty.DIFFICILE));
+                    });
+                } else if ("replayButton".equals(bottone.getName())) {
+                    bottoneReplay = bottone;
+                    bottone.addActionListener(e -> {
+                        if (riproduzione != null) {
+                            fermaRiproduzione();
+                        } else if (!autoCompletamentoAttivo) {
+                            avviaRiproduzione(velocitaReplay.getSelectedIndex());
+                        }
+                    });
                 }
+            } else if (c instanceof JComboBox<?> velocita && "replaySpeed".equals(velocita.getName())) {
+                velocitaReplay = velocita;
+            } else if (c instanceof JSlider timeline && "timelineSlider".equals(timeline.getName())) {
+                timeline.addChangeListener(e -> {
+                    // Solo i movimenti del giocatore: gli aggiornamenti della
+                    // vista non sono salti
+                    if (vista.isAggiornamentoTimeline()) {
+                        return;
+                    }
+                    if (riproduzione != null) {
+                        if (timeline.getValue() != riproduzione.getPosizioneStorico()) {
+                            riproduzione.vaiAMossa(timeline.getValue());
+                            riavviaOrologioRiproduzione();
+                            aggiornaVistaRiproduzione();
+                            avanzaRiproduzione(); // riparte se era arrivato in fondo
+                        }
+                        return;
+                    }
+                    if (autoCompletamentoAttivo || timeline.getValue() == modello.getPosizioneStorico()) {
+                        return;
+                    }
+                    modello.vaiAMossa(timeline.getValue());
+                    aggiornaVista();
+                });
             }
         }
     }
 
+    // Tutti i componenti del pannello, anche quelli nei sotto-pannelli
+    private static List<Component> componentiDi(Container contenitore, List<Component> raccolti) {
+        for (Component c : contenitore.getComponents()) {
+            raccolti.add(c);
+            if (c instanceof JPanel sottoPannello) {
+                componentiDi(sottoPannello, raccolti);
+            }
+        }
+        return raccolti;
+    }
+
+    // Durante auto-completamento e replay il giocatore non può muovere
+    private boolean inputBloccato() {
+        return autoCompletamentoAttivo || riproduzione != null;
+    }
+
+    // ── Replay ───────────────────────────────────────────────────────────────
+    /**
+     * Riproduce la partita in corso dalla smazzata su un modello separato.
+     * A ogni frame la posizione viene calcolata dal tempo trascorso: se
+     * l'EDT resta indietro si saltano mosse invece di rallentare, e a ogni
+     * frame si ridisegna una volta sola. Arrivata all'ultima mossa
+     * l'animazione finisce; un salto indietro della timeline la riavvia.
+     */
+    private void avviaRiproduzione(int velocita) {
+        annullaSuggerimento();
+        riproduzione = new GameModel();
+        try {
+            riproduzione.caricaRegistrazione(modello.getRegistrazione());
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex);
+            riproduzione = null;
+            return;
+        }
+        vista.gamePanel.setModel(riproduzione);
+        bottoneReplay.setText("Stop");
+
+        if (velocita == REPLAY_ISTANTANEO) {
+            passoReplayNs = 0;
+            riproduzione.vaiAMossa(riproduzione.getLunghezzaStorico());
+            aggiornaVistaRiproduzione();
+            return;
+        }
+        passoReplayNs = velocita == 0 ? PASSO_REPLAY_NS : PASSO_REPLAY_NS / 10;
+        riavviaOrologioRiproduzione();
+        aggiornaVistaRiproduzione();
+        avanzaRiproduzione();
+    }
+
+    /**
+     * Avvia l'animazione che fa avanzare il replay, se non è già attiva e
+     * restano mosse da mostrare.
+     */
+    private void avanzaRiproduzione() {
+        if (avanzamentoReplay || passoReplayNs == 0
+                || riproduzione.getPosizioneStorico() >= riproduzione.getLunghezzaStorico()) {
+            return;
+        }
+        avanzamentoReplay = true;
+        GameModel partita = riproduzione;
+        animazioni.avvia(adesso -> {
+            if (riproduzione != partita) {
+                return false; // replay fermato
+            }
+            long trascorsi = adesso - inizioReplayNs;
+            int obiettivo = (int) Math.min(riproduzione.getLunghezzaStorico(),
+                    mossaInizioReplay + trascorsi / passoReplayNs);
+            if (obiettivo != riproduzione.getPosizioneStorico()) {
+                riproduzione.vaiAMossa(obiettivo);
+                aggiornaVistaRiproduzione();
+            }
+            avanzamentoReplay = obiettivo < riproduzione.getLunghezzaStorico();
+            return avanzamentoReplay;
+        });
+    }
+
+    // Il tempo del replay riparte dalla posizione attuale (avvio o salto)
+    private void riavviaOrologioRiproduzione() {
+        inizioReplayNs = System.nanoTime();
+        mossaInizioReplay = riproduzione.getPosizioneStorico();
+    }
+
+    private void aggiornaVistaRiproduzione() {
+        vista.updateMovesLabel(riproduzione.getMoveCount());
+        vista.updateTimeline(riproduzione.getPosizioneStorico(), riproduzione.getLunghezzaStorico());
+        vista.gamePanel.repaint();
+    }
+
+    private void fermaRiproduzione() {
+        if (riproduzione != null) {
+            riproduzione = null;
+            avanzamentoReplay = false;
+            vista.gamePanel.setModel(modello);
+            bottoneReplay.setText("Rivedi");
+            aggiornaVista();
+        }
+    }
+
+    // ── Suggerimento ─────────────────────────────────────────────────────────
+    /**
+     * Avvia la ricerca in background; l'EDT resta libero e il risultato
+     * viene evidenziato solo se nel frattempo la posizione non è cambiata.
+     */
+    private void richiediSuggerimento() {
+        suggerimentoAttivo = true;
+        hashSuggerimento = modello.getZobristHash();
+        vista.gamePanel.setSuggerimento(-1);
+        vista.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        suggerimenti.cerca(modello, mossa -> {
+            vista.setCursor(Cursor.getDefaultCursor());
+            if (mossa < 0) {
+                suggerimentoAttivo = false;
+                JOptionPane.showMessageDialog(vista,
+                        "Nessuna mossa disponibile.",
+                        "Suggerimento", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            vista.gamePanel.setSuggerimento(mossa);
+            vista.gamePanel.repaint();
+        });
+    }
+
+    private void annullaSuggerimento() {
+        suggerimenti.annulla();
+        suggerimentoAttivo = false;
+        vista.setCursor(Cursor.getDefaultCursor());
+        vista.gamePanel.setSuggerimento(-1);
+    }
+
     // ── Listener mouse ────────────────────────────────────────────────────────
     private void registraListenerMouse() {
         MouseAdapter adattatore = new MouseAdapter() {
-            @Override public void mousePressed(MouseEvent e)  { if (!autoCompletamentoAttivo) gestisciPressione(e); }
-            @Override public void mouseDragged(MouseEvent e)  { if (!autoCompletamentoAttivo) gestisciDrag(e); }
-            @Override public void mouseReleased(MouseEvent e) { if (!autoCompletamentoAttivo) gestisciRilascio(e); }
-            @Override public void mouseClicked(MouseEvent e)  { if (!autoCompletamentoAttivo) gestisciClick(e); }
+            @Override public void mousePressed(MouseEvent e)  { if (!inputBloccato()) gestisciPressione(e); }
+            @Override public void mouseDragged(MouseEvent e)  { if (!inputBloccato()) gestisciDrag(e); }
+            @Override public void mouseReleased(MouseEvent e) { if (!inputBloccato()) gestisciRilascio(e); }
+            @Override public void mouseClicked(MouseEvent e)  { if (!inputBloccato()) gestisciClick(e); }
         };
         vista.gamePanel.addMouseListener(adattatore);
         vista.gamePanel.addMouseMotionListener(adattatore);
@@ -111,9 +372,7 @@ public class GameController {
 
     // ── Click stock ───────────────────────────────────────────────────────────
     private void gestisciClick(MouseEvent e) {
-        int x = e.getX(), y = e.getY();
-        if (x >= GameView.SPAZIATURA_CARTE && x <= GameView.SPAZIATURA_CARTE + GameView.LARGHEZZA_CARTA
-                && y >= GameView.SPAZIATURA_CARTE && y <= GameView.SPAZIATURA_CARTE + GameView.ALTEZZA_CARTA) {
+        if (LayoutTavolo.pilaInPunto(e.getX(), e.getY(), modello) == Moves.STOCK) {
             modello.drawFromStock();
             aggiornaVista();
             verificaAutoCompletamento();
@@ -126,57 +385,23 @@ public class GameController {
         modello.clearDrag();
         inizioDrag = null;
 
-        int xScarto = GameView.SPAZIATURA_CARTE + GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE;
-
-        // Scarto
-        if (!modello.getWastePile().isEmpty()) {
-            int visibili = modello.getCarteVisibiliWaste();
-            int offsetCima = (visibili - 1) * 20;
-            if (mx >= xScarto + offsetCima && mx <= xScarto + offsetCima + GameView.LARGHEZZA_CARTA
-                    && my >= GameView.SPAZIATURA_CARTE && my <= GameView.SPAZIATURA_CARTE + GameView.ALTEZZA_CARTA) {
-                modello.startDragFromWaste();
-                inizioDrag = e.getPoint();
-                offsetDrag.setLocation(mx - (xScarto + offsetCima), my - GameView.SPAZIATURA_CARTE);
-                sincronizzaDragConVista(e.getPoint());
-                return;
-            }
-        }
-
-        // Fondamenta
-        for (int i = 0; i < 4; i++) {
-            int xF = GameView.SPAZIATURA_CARTE + (3 + i) * (GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE);
-            if (!modello.getFoundations().get(i).isEmpty()
-                    && mx >= xF && mx <= xF + GameView.LARGHEZZA_CARTA
-                    && my >= GameView.SPAZIATURA_CARTE && my <= GameView.SPAZIATURA_CARTE + GameView.ALTEZZA_CARTA) {
-                modello.startDragFromFoundation(i);
-                inizioDrag = e.getPoint();
-                offsetDrag.setLocation(mx - xF, my - GameView.SPAZIATURA_CARTE);
-                sincronizzaDragConVista(e.getPoint());
-                return;
-            }
+        int colpo = LayoutTavolo.cartaInPunto(mx, my, modello);
+        if (colpo < 0) {
+            return;
         }
-
-        // Tavolo
-        for (int col = 0; col < 7; col++) {
-            List<GameModel.Card> pila = modello.getTableau().get(col);
-            if (pila.isEmpty()) continue;
-            int xCol = GameView.SPAZIATURA_CARTE + col * (GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE);
-            int yCol = GameView.Y_TAVOLO;
-            for (int i = pila.size() - 1; i >= 0; i--) {
-                GameModel.Card carta = pila.get(i);
-                int yC = yCol + i * GameView.OFFSET_PILA;
-                int altezza = (i == pila.size() - 1) ? GameView.ALTEZZA_CARTA : GameView.OFFSET_PILA;
-                if (mx >= xCol && mx <= xCol + GameView.LARGHEZZA_CARTA && my >= yC && my <= yC + altezza) {
-                    if (carta.isFaceUp()) {
-                        modello.startDragFromTableau(col, i);
-                        inizioDrag = e.getPoint();
-                        offsetDrag.setLocation(mx - xCol, my - yC);
-                        sincronizzaDragConVista(e.getPoint());
-                        return;
-                    }
-                }
-            }
+        int pila = LayoutTavolo.pila(colpo);
+        if (pila == Moves.SCARTO) {
+            modello.startDragFromWaste();
+        } else if (Moves.isFoundation(pila)) {
+            modello.startDragFromFoundation(pila - Moves.FONDAMENTA);
+        } else if (Moves.isTableau(pila) && modello.isFaceUp(pila, LayoutTavolo.indice(colpo))) {
+            modello.startDragFromTableau(pila, LayoutTavolo.indice(colpo));
+        } else {
+            return; // stock e carte coperte non si trascinano
         }
+        inizioDrag = e.getPoint();
+        offsetDrag.setLocation(mx - LayoutTavolo.xCarta(colpo, modello), my - LayoutTavolo.yCarta(colpo));
+        sincronizzaDragConVista(e.getPoint());
     }
 
     // ── Drag ─────────────────────────────────────────────────────────────────
@@ -191,36 +416,11 @@ public class GameController {
     private void gestisciRilascio(MouseEvent e) {
         if (modello.getDraggedCards().isEmpty()) return;
 
-        int mx = e.getX(), my = e.getY();
-        boolean posizionata = false;
-
-        if (modello.getDraggedCards().size() == 1) {
-            for (int i = 0; i < 4; i++) {
-                int xF = GameView.SPAZIATURA_CARTE + (3 + i) * (GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE);
-                if (mx >= xF && mx <= xF + GameView.LARGHEZZA_CARTA
-                        && my >= GameView.SPAZIATURA_CARTE && my <= GameView.SPAZIATURA_CARTE + GameView.ALTEZZA_CARTA) {
-                    if (modello.tryPlaceOnFoundation(i)) {
-                        posizionata = true;
-                        break;
-                    }
-                }
-            }
-        }
-
-        if (!posizionata) {
-            for (int col = 0; col < 7; col++) {
-                int xCol = GameView.SPAZIATURA_CARTE + col * (GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE);
-                int yCol = GameView.Y_TAVOLO;
-                List<GameModel.Card> pila = modello.getTableau().get(col);
-                int yTarget = pila.isEmpty() ? yCol : yCol + pila.size() * GameView.OFFSET_PILA;
-                if (mx >= xCol && mx <= xCol + GameView.LARGHEZZA_CARTA
-                        && my >= yCol && my <= yTarget + GameView.ALTEZZA_CARTA) {
-                    if (modello.tryPlaceOnTableau(col)) {
-                        posizionata = true;
-                        break;
-                    }
-                }
-            }
+        int pila = LayoutTavolo.pilaInPunto(e.getX(), e.getY(), modello);
+        if (pila >= 0 && Moves.isFoundation(pila)) {
+            modello.tryPlaceOnFoundation(pila - Moves.FONDAMENTA); // solo carte singole
+        } else if (pila >= 0 && Moves.isTableau(pila)) {
+            modello.tryPlaceOnTableau(pila);
         }
 
         modello.clearDrag();
@@ -245,10 +445,8 @@ public class GameController {
         if (!modello.getStockPile().isEmpty()) return;
         if (!modello.getWastePile().isEmpty()) return;
 
-        for (List<GameModel.Card> colonna : modello.getTableau()) {
-            for (GameModel.Card carta : colonna) {
-                if (!carta.isFaceUp()) return;
-            }
+        for (int col = 0; col < 7; col++) {
+            if (modello.getFirstFaceUp(col) > 0) return;
         }
 
         // Tutte le condizioni soddisfatte
@@ -258,22 +456,23 @@ public class GameController {
     // ── Avvia autocompletamento ───────────────────────────────────────────────
     private void avviaAutoCompletamento() {
         autoCompletamentoAttivo = true;
+        int sessione = ++sessioneAutoCompletamento;
         // Piccola pausa prima di iniziare
-        javax.swing.Timer pausa = new javax.swing.Timer(400, e -> prossimoPassoAutoCompletamento());
-        pausa.setRepeats(false);
-        pausa.start();
+        passoInAttesa = true;
+        animazioni.dopo(PAUSA_INIZIALE_NS, () -> prossimoPassoAutoCompletamento(sessione));
     }
 
     /**
      * Trova la prossima carta giocabile (rango minimo tra quelle in cima alle
-     * colonne) e avvia l'animazione di volo verso la fondamenta corretta.
+     * colonne) e la fa volare verso la fondamenta corretta. La carta dopo
+     * parte mentre questa è ancora in volo; l'autocompletamento finisce
+     * quando non ci sono più carte da spostare e tutte sono arrivate.
      */
-    private void prossimoPassoAutoCompletamento() {
-        if (modello.checkWin()) {
-            fermaAutoCompletamento();
-            SwingUtilities.invokeLater(this::mostraVittoria);
+    private void prossimoPassoAutoCompletamento(int sessione) {
+        if (sessione != sessioneAutoCompletamento) {
             return;
         }
+        passoInAttesa = false;
 
         // Cerca la carta con il rango più basso tra le cime delle colonne
         // che può andare in fondamenta — garantisce ordine A->K senza blocchi
@@ -299,83 +498,66 @@ public class GameController {
         }
 
         if (cartaDaSpostare == null) {
-            // Non ci sono mosse: auto-completamento non può procedere
-            fermaAutoCompletamento();
+            // Partita vinta o bloccata: si chiude all'arrivo dell'ultima carta
+            if (voliInCorso == 0) {
+                concludiAutoCompletamento();
+            }
             return;
         }
 
         // Coordinate di partenza (cima della colonna)
-        List<GameModel.Card> pilaOrigine = modello.getTableau().get(colonnaOrigine);
-        int xPartenza = GameView.SPAZIATURA_CARTE + colonnaOrigine * (GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE);
-        int yPartenza = GameView.Y_TAVOLO + (pilaOrigine.size() - 1) * GameView.OFFSET_PILA;
+        int xPartenza = LayoutTavolo.xPila(colonnaOrigine);
+        int yPartenza = LayoutTavolo.yColonna(modello.getTableau().get(colonnaOrigine).size() - 1);
 
         // Coordinate di arrivo (fondamenta target)
-        int xArrivo = GameView.SPAZIATURA_CARTE + (3 + fondamentaTarget) * (GameView.LARGHEZZA_CARTA + GameView.SPAZIATURA_CARTE);
-        int yArrivo = GameView.SPAZIATURA_CARTE;
+        int xArrivo = LayoutTavolo.xPila(Moves.FONDAMENTA + fondamentaTarget);
+        int yArrivo = LayoutTavolo.yPila(Moves.FONDAMENTA + fondamentaTarget);
+
+        // Sposta la carta nel modello (registrata per l'undo): la vista la
+        // mostra "in volo" finché l'animazione non arriva alla fondamenta
+        final GameModel.Card carta = cartaDaSpostare;
+        modello.autoMoveToFoundation(colonnaOrigine, fondamentaTarget);
+
+        voliInCorso++;
+        animazioni.volo(xPartenza, yPartenza, xArrivo, yArrivo, DURATA_VOLO_NS, (x, y) -> {
+            if (sessione == sessioneAutoCompletamento) {
+                vista.gamePanel.setCartaInVolo(carta, x, y);
+            }
+        }, () -> arrivoAutoCompletamento(sessione, carta));
+        aggiornaVista();
 
-        // Rimuovi carta dal modello: ora è "in volo"
-        final int fondFin = fondamentaTarget;
-        final GameModel.Card cartaFin = cartaDaSpostare;
-        pilaOrigine.remove(cartaDaSpostare);
+        passoInAttesa = true;
+        animazioni.dopo(PARTENZA_TRA_CARTE_NS, () -> prossimoPassoAutoCompletamento(sessione));
+    }
 
-        // Gira eventuale carta sottostante
-        if (!pilaOrigine.isEmpty() && !pilaOrigine.get(pilaOrigine.size() - 1).isFaceUp()) {
-            pilaOrigine.get(pilaOrigine.size() - 1).flip();
+    // Fine volo: la carta è già nella fondamenta, basta ridisegnarla
+    private void arrivoAutoCompletamento(int sessione, GameModel.Card carta) {
+        if (sessione != sessioneAutoCompletamento) {
+            return;
         }
+        voliInCorso--;
+        vista.gamePanel.rimuoviCartaInVolo(carta);
+        vista.gamePanel.repaint();
+        if (voliInCorso == 0 && !passoInAttesa) {
+            concludiAutoCompletamento();
+        }
+    }
 
-        // Prepara animazione
-        posizioneVoloPartenza = new Point(xPartenza, yPartenza);
-        posizioneVoloArrivo   = new Point(xArrivo, yArrivo);
-        posizioneVoloAttuale  = new Point(xPartenza, yPartenza);
-        cartaInVolo = cartaFin;
-        frameVoloCorrente = 0;
-
-        vista.gamePanel.setCartaInVolo(cartaInVolo, posizioneVoloAttuale);
-        aggiornaVista();
-
-        // Timer animazione frame per frame
-        timerVolo = new javax.swing.Timer(INTERVALLO_FRAME_MS, null);
-        timerVolo.addActionListener(e -> {
-            frameVoloCorrente++;
-            float t = Math.min(1f, (float) frameVoloCorrente / FRAME_PER_VOLO);
-
-            if (t >= 1f) {
-                // Fine volo: deposita carta nella fondamenta
-                timerVolo.stop();
-                timerVolo = null;
-                cartaInVolo = null;
-                vista.gamePanel.setCartaInVolo(null, null);
-
-                modello.getFoundations().get(fondFin).add(cartaFin);
-                aggiornaVista();
-
-                // Pausa prima della prossima carta
-                javax.swing.Timer prossima = new javax.swing.Timer(PAUSA_TRA_CARTE_MS, ev -> prossimoPassoAutoCompletamento());
-                prossima.setRepeats(false);
-                prossima.start();
-
-            } else {
-                // Easing ease-out cubico per movimento fluido e naturale
-                float tEased = 1f - (1f - t) * (1f - t) * (1f - t);
-                int x = (int) (posizioneVoloPartenza.x + tEased * (posizioneVoloArrivo.x - posizioneVoloPartenza.x));
-                int y = (int) (posizioneVoloPartenza.y + tEased * (posizioneVoloArrivo.y - posizioneVoloPartenza.y));
-                posizioneVoloAttuale = new Point(x, y);
-                vista.gamePanel.setCartaInVolo(cartaInVolo, posizioneVoloAttuale);
-                vista.gamePanel.repaint();
-            }
-        });
-        timerVolo.start();
+    private void concludiAutoCompletamento() {
+        boolean vinta = modello.checkWin();
+        fermaAutoCompletamento();
+        if (vinta) {
+            SwingUtilities.invokeLater(this::mostraVittoria);
+        }
     }
 
     // ── Ferma autocompletamento ───────────────────────────────────────────────
     private void fermaAutoCompletamento() {
         autoCompletamentoAttivo = false;
-        if (timerVolo != null) {
-            timerVolo.stop();
-            timerVolo = null;
-        }
-        cartaInVolo = null;
-        vista.gamePanel.setCartaInVolo(null, null);
+        sessioneAutoCompletamento++;
+        voliInCorso = 0;
+        passoInAttesa = false;
+        vista.gamePanel.rimuoviCarteInVolo();
     }
 
     // ── Utilities ────────────────────────────────────────────────────────────
@@ -386,18 +568,30 @@ public class GameController {
                 posMouse,
                 modello.getSourceTableau(),
                 modello.getSourceIndex()
-        );
-        vista.gamePanel.repaint();
+        ); // il pannello ridisegna solo le aree toccate dal drag
     }
 
     private void aggiornaVista() {
+        // Il giocatore ha mosso: il suggerimento non vale più
+        if (suggerimentoAttivo && hashSuggerimento != modello.getZobristHash()) {
+            annullaSuggerimento();
+        }
+        vista.updateDealLabel(modello.getDealSeed());
         vista.updateTimerLabel(modello.getElapsedSeconds());
         vista.updateMovesLabel(modello.getMoveCount());
+        vista.updateTimeline(modello.getPosizioneStorico(), modello.getLunghezzaStorico());
         vista.gamePanel.repaint();
+        salvaPartita();
     }
 
     private void mostraVittoria() {
         fermaAutoCompletamento();
+        registraPartita(ArchivioStatistiche.Esito.VINTA);
+        try {
+            SalvataggioPartita.elimina(fileSalvataggio);
+        } catch (IOException ex) {
+            System.out.println(ex);
+        }
         GameModel.Difficulty nuovaDiff = vista.showVictoryDialog(
                 modello.getElapsedSeconds(),
                 modello.getMoveCount(),
@@ -1,5 +1,6 @@
 package solitairegame;
 
+import java.nio.ByteBuffer;
 import java.util.*;
 
 /**
@@ -9,7 +10,12 @@ import java.util.*;
 public class GameModel {
 
     // ── Carta ────────────────────────────────────────────────────────────────
-    public static class Card {
+    /**
+     * Carta immutabile: esistono solo 52 istanze, una per codice, ottenute
+     * con {@link #of(int)}. Il lato visibile dipende dalla pila in cui si
+     * trova la carta (vedi {@link GameModel#isFaceUp(int, int)}).
+     */
+    public static final class Card {
 
         public enum Suit {
             HEARTS("♥"), DIAMONDS("♦"), CLUBS("♣"), SPADES("♠");
@@ -40,14 +46,33 @@ public class GameModel {
             }
         }
 
+        private static final Card[] CARTE = new Card[52];
+
+        static {
+            for (Suit seme : Suit.values()) {
+                for (Rank rango : Rank.values()) {
+                    Card c = new Card(seme, rango);
+                    CARTE[c.codice] = c;
+                }
+            }
+        }
+
         private final Suit seme;
         private final Rank rango;
-        boolean facciaInSu;
+        private final int codice;
 
-        public Card(Suit seme, Rank rango) {
+        private Card(Suit seme, Rank rango) {
             this.seme = seme;
             this.rango = rango;
-            this.facciaInSu = false;
+            this.codice = seme.ordinal() * 13 + rango.ordinal();
+        }
+
+        public static Card of(int codice) {
+            return CARTE[codice];
+        }
+
+        public static Card of(Suit seme, Rank rango) {
+            return CARTE[seme.ordinal() * 13 + rango.ordinal()];
         }
 
         public Suit getSuit() {
@@ -58,12 +83,11 @@ public class GameModel {
             return rango;
         }
 
-        public boolean isFaceUp() {
-            return facciaInSu;
-        }
-
-        public void flip() {
-            facciaInSu = !facciaInSu;
+        /**
+         * Codice compatto 0-51 della carta: seme * 13 + rango.
+         */
+        public int getCode() {
+            return codice;
         }
     }
 
@@ -73,15 +97,35 @@ public class GameModel {
         private final List<Card> carte = new ArrayList<>();
 
         public Deck() {
-            for (Card.Suit seme : Card.Suit.values()) {
-                for (Card.Rank rango : Card.Rank.values()) {
-                    carte.add(new Card(seme, rango));
-                }
+            for (int codice = 0; codice < 52; codice++) {
+                carte.add(Card.of(codice));
             }
         }
 
         public void shuffle() {
-            Collections.shuffle(carte);
+            shuffle(new DealRandom(DealRandom.nuovoNumeroPartita()));
+        }
+
+        /**
+         * Fisher-Yates con il generatore indicato: stesso seme, stesso ordine.
+         */
+        public void shuffle(DealRandom generatore) {
+            for (int i = carte.size() - 1; i > 0; i--) {
+                Collections.swap(carte, i, generatore.nextInt(i + 1));
+            }
+        }
+
+        /**
+         * Stessa mescolata di {@link #shuffle(DealRandom)} ma sui codici carta,
+         * senza oggetti: codici deve contenere il mazzo nell'ordine iniziale.
+         */
+        static void mescolaCodici(byte[] codici, DealRandom generatore) {
+            for (int i = codici.length - 1; i > 0; i--) {
+                int j = generatore.nextInt(i + 1);
+                byte t = codici[i];
+                codici[i] = codici[j];
+                codici[j] = t;
+            }
         }
 
         public boolean hasCards() {
@@ -98,17 +142,6 @@ public class GameModel {
         FACILE, DIFFICILE
     }
 
-    // ── Snapshot per undo ────────────────────────────────────────────────────
-    private static class StatoPartita {
-        List<Card> pilaStock;
-        List<Card> pilaScarto;
-        List<List<Card>> fondamenta;
-        List<List<Card>> tavolo;
-        int contatoreMovimenti;
-        // Per ogni carta salviamo lo stato facciaInSu
-        // Le carte sono condivise per riferimento, quindi salviamo copie profonde
-    }
-
     // ── Stato del gioco ──────────────────────────────────────────────────────
     private Deck mazzo;
     private List<Card> pilaStock;
@@ -116,11 +149,19 @@ public class GameModel {
     private List<List<Card>> fondamenta;
     private List<List<Card>> tavolo;
 
+    // Indice della prima carta scoperta di ogni colonna (0 se vuota): stock
+    // sempre coperto, scarto e fondamenta sempre scoperti
+    private final int[] primaScoperta = new int[7];
+
+    // Hash Zobrist della posizione, aggiornato a ogni spostamento di carta
+    private long hashZobrist;
+
     private List<Card> carteTrascinate = new ArrayList<>();
     private int sorgentePila = -1;
     private int sorgentePosizione = -1;
 
     // Statistiche partita
+    private long numeroPartita = 0;
     private int secondiTrascorsi = 0;
     private int contatoreMovimenti = 0;
     private boolean partitaIniziata = false;
@@ -129,162 +170,586 @@ public class GameModel {
     private Difficulty difficoltaCorrente = Difficulty.FACILE;
     private int carteDaPescareAllaVolta = 1;
 
-    // ── Undo ─────────────────────────────────────────────────────────────────
-    // Stack degli stati salvati per la funzione "mossa precedente"
-    private final Deque<byte[]> storicoPila = new ArrayDeque<>();
+    // ── Undo / redo ──────────────────────────────────────────────────────────
+    // Registro delle mosse eseguite, codificate con Moves (sorgente, destinazione,
+    // numero di carte, carta scoperta). Le voci oltre posizioneRegistro sono
+    // mosse annullate che si possono ripetere.
+    private int[] registro = new int[64];
+    private int lunghezzaRegistro = 0;
+    private int posizioneRegistro = 0;
+
+    // Fotogrammi chiave per la timeline: keyframe[i] è la posizione dopo
+    // i * INTERVALLO_KEYFRAME mosse del registro, con il relativo contatore.
+    // Saltare alla mossa k costa un ripristino più al massimo
+    // INTERVALLO_KEYFRAME - 1 mosse ripetute.
+    public static final int INTERVALLO_KEYFRAME = 32;
+    private BoardState[] keyframe = new BoardState[8];
+    private int[] mosseKeyframe = new int[8];
+    private int numeroKeyframe = 0;
+
+    // Replay della partita: ogni mossa, annulla, ripeti e salto della
+    // timeline (null quando il modello sta riproducendo un replay)
+    private RegistrazionePartita registrazione = null;
+
+    private void registra(int comando) {
+        if (registrazione != null) {
+            registrazione.aggiungi(RegistrazionePartita.eventoDi(comando));
+        }
+        if (posizioneRegistro == registro.length) {
+            registro = Arrays.copyOf(registro, registro.length * 2);
+        }
+        // I keyframe oltre la mossa sovrascritta descrivono mosse cancellate
+        numeroKeyframe = Math.min(numeroKeyframe, posizioneRegistro / INTERVALLO_KEYFRAME + 1);
+        registro[posizioneRegistro++] = comando;
+        lunghezzaRegistro = posizioneRegistro; // una nuova mossa cancella i redo
+        if (posizioneRegistro % INTERVALLO_KEYFRAME == 0) {
+            aggiungiKeyframe();
+        }
+    }
+
+    private void svuotaRegistro() {
+        lunghezzaRegistro = 0;
+        posizioneRegistro = 0;
+        numeroKeyframe = 0;
+        aggiungiKeyframe();
+    }
+
+    private void aggiungiKeyframe() {
+        if (numeroKeyframe == keyframe.length) {
+            keyframe = Arrays.copyOf(keyframe, keyframe.length * 2);
+            mosseKeyframe = Arrays.copyOf(mosseKeyframe, mosseKeyframe.length * 2);
+        }
+        keyframe[numeroKeyframe] = getBoardState();
+        mosseKeyframe[numeroKeyframe++] = contatoreMovimenti;
+    }
+
+    /**
+     * Annulla l'ultima mossa (undo) applicando il comando inverso.
+     * Ritorna true se l'operazione è riuscita.
+     */
+    public boolean annullaMossa() {
+        if (posizioneRegistro == 0) {
+            return false;
+        }
+        annulla(registro[--posizioneRegistro]);
+        if (registrazione != null) {
+            registrazione.aggiungi(RegistrazionePartita.ANNULLA);
+        }
+        clearDrag();
+        return true;
+    }
 
     /**
-     * Salva lo stato corrente nello storico per poterlo ripristinare con undo.
-     * Chiamare PRIMA di eseguire ogni mossa.
+     * Ripete l'ultima mossa annullata (redo).
+     * Ritorna true se l'operazione è riuscita.
      */
-    private void salvaStatoPerUndo() {
-        // Serializzazione leggera: ogni carta è identificata da seme+rango+facciaInSu
-        // Usiamo una lista ordinata di interi come snapshot compatto
-        // Formato: [stockSize, carte stock..., scartoSize, carte scarto...,
-        //           fond0size, carte..., ..., fond3size, carte...,
-        //           tab0size, carte..., ..., tab6size, carte..., mosse]
-        // Ogni carta: seme(0-3)*13 + rango(0-12), bit 7 = facciaInSu
-        List<Integer> dati = new ArrayList<>();
+    public boolean ripetiMossa() {
+        if (posizioneRegistro == lunghezzaRegistro) {
+            return false;
+        }
+        esegui(registro[posizioneRegistro++]);
+        if (registrazione != null) {
+            registrazione.aggiungi(RegistrazionePartita.RIPETI);
+        }
+        clearDrag();
+        return true;
+    }
+
+    public boolean hasMossePrecedenti() {
+        return posizioneRegistro > 0;
+    }
+
+    public boolean hasMosseSuccessive() {
+        return posizioneRegistro < lunghezzaRegistro;
+    }
 
-        // Stock
-        dati.add(pilaStock.size());
-        for (Card c : pilaStock) {
-            dati.add(codificaCarta(c));
+    /**
+     * Porta la partita alla mossa indicata della timeline (0 = smazzata
+     * iniziale, getLunghezzaStorico() = ultima mossa giocata). Le mosse
+     * successive restano ripetibili.
+     */
+    public void vaiAMossa(int mossa) {
+        mossa = Math.max(0, Math.min(mossa, lunghezzaRegistro));
+        if (registrazione != null && mossa != posizioneRegistro) {
+            registrazione.aggiungiSalto(mossa);
         }
-        // Scarto
-        dati.add(pilaScarto.size());
-        for (Card c : pilaScarto) {
-            dati.add(codificaCarta(c));
+        if (Math.abs(mossa - posizioneRegistro) >= INTERVALLO_KEYFRAME) {
+            int k = mossa / INTERVALLO_KEYFRAME;
+            ripristinaPile(keyframe[k]);
+            contatoreMovimenti = mosseKeyframe[k];
+            posizioneRegistro = k * INTERVALLO_KEYFRAME;
         }
-        // Fondamenta
-        for (List<Card> f : fondamenta) {
-            dati.add(f.size());
-            for (Card c : f) {
-                dati.add(codificaCarta(c));
-            }
+        while (posizioneRegistro > mossa) {
+            annulla(registro[--posizioneRegistro]);
         }
-        // Tavolo
-        for (List<Card> col : tavolo) {
-            dati.add(col.size());
-            for (Card c : col) {
-                dati.add(codificaCarta(c));
-            }
+        while (posizioneRegistro < mossa) {
+            esegui(registro[posizioneRegistro++]);
         }
-        // Mosse
-        dati.add(contatoreMovimenti);
+        clearDrag();
+    }
+
+    public int getPosizioneStorico() {
+        return posizioneRegistro;
+    }
+
+    public int getLunghezzaStorico() {
+        return lunghezzaRegistro;
+    }
+
+    // ── Esecuzione dei comandi ───────────────────────────────────────────────
+    private List<Card> pila(int indice) {
+        if (Moves.isTableau(indice)) {
+            return tavolo.get(indice);
+        }
+        if (Moves.isFoundation(indice)) {
+            return fondamenta.get(indice - Moves.FONDAMENTA);
+        }
+        return indice == Moves.SCARTO ? pilaScarto : pilaStock;
+    }
 
-        // Converti in byte array
-        byte[] snapshot = new byte[dati.size()];
-        for (int i = 0; i < dati.size(); i++) {
-            snapshot[i] = dati.get(i).byteValue();
+    /**
+     * Esegue un comando già validato e ritorna il comando con il bit
+     * {@link Moves#SCOPERTA} impostato se ha girato una carta del tavolo.
+     * Un comando {@link Moves#INVERSA} annulla la mossa che descrive.
+     */
+    private int esegui(int comando) {
+        if ((comando & Moves.INVERSA) != 0) {
+            annulla(comando & ~Moves.INVERSA);
+            return comando;
         }
-        storicoPila.push(snapshot);
+        int sorgente = Moves.source(comando);
+        int destinazione = Moves.destination(comando);
+        int n = Moves.count(comando);
 
-        // Mantieni max 50 stati
-        while (storicoPila.size() > 50) {
-            storicoPila.removeLast();
+        if (sorgente == Moves.STOCK) {
+            capovolgi(Moves.STOCK, Moves.SCARTO, n);
+        } else if (destinazione == Moves.STOCK) {
+            // Reset: rimetti tutte le carte dello scarto nello stock
+            capovolgi(Moves.SCARTO, Moves.STOCK, pilaScarto.size());
+        } else {
+            sposta(sorgente, destinazione, n);
+            if (Moves.isTableau(sorgente) && scopriCima(sorgente)) {
+                comando |= Moves.SCOPERTA;
+            }
         }
+        if ((comando & Moves.NON_CONTATA) == 0) {
+            incrementaMovimenti();
+        }
+        return comando;
     }
 
-    private int codificaCarta(Card c) {
-        int val = c.getSuit().ordinal() * 13 + c.getRank().ordinal();
-        if (c.facciaInSu) {
-            val |= 0x80;
+    private void annulla(int comando) {
+        if ((comando & Moves.INVERSA) != 0) {
+            esegui(comando & ~Moves.INVERSA);
+            return;
+        }
+        int sorgente = Moves.source(comando);
+        int destinazione = Moves.destination(comando);
+        int n = Moves.count(comando);
+
+        if (sorgente == Moves.STOCK) {
+            capovolgi(Moves.SCARTO, Moves.STOCK, n);
+        } else if (destinazione == Moves.STOCK) {
+            capovolgi(Moves.STOCK, Moves.SCARTO, pilaStock.size());
+        } else {
+            if (Moves.flipped(comando)) {
+                impostaPrimaScoperta(sorgente, pila(sorgente).size()); // ricopre la carta girata
+            }
+            sposta(destinazione, sorgente, n);
+        }
+        if ((comando & Moves.NON_CONTATA) == 0) {
+            contatoreMovimenti--;
         }
-        return val & 0xFF;
     }
 
     /**
-     * Ripristina lo stato precedente (undo).
-     * Ritorna true se l'operazione è riuscita.
+     * Aggiorna la prima carta scoperta della colonna dopo che ne sono state
+     * tolte carte; ritorna true se la nuova cima era coperta ed è stata girata.
      */
-    public boolean annullaMossa() {
-        if (storicoPila.isEmpty()) {
+    private boolean scopriCima(int colonna) {
+        int dimensione = tavolo.get(colonna).size();
+        if (primaScoperta[colonna] < dimensione) {
             return false;
         }
-        byte[] snapshot = storicoPila.pop();
+        impostaPrimaScoperta(colonna, Math.max(0, dimensione - 1));
+        return dimensione > 0;
+    }
+
+    // ── Spostamenti con hash incrementale ────────────────────────────────────
+    /**
+     * Sposta le ultime n carte di una pila in cima a un'altra mantenendone
+     * l'ordine (sequenze del tavolo, fondamenta, scarto).
+     */
+    private void sposta(int sorgente, int destinazione, int n) {
+        List<Card> da = pila(sorgente);
+        List<Card> a = pila(destinazione);
+        int base = da.size() - n;
+        for (int k = 0; k < n; k++) {
+            Card carta = da.get(base + k);
+            hashZobrist ^= Zobrist.carta(sorgente, base + k, carta.getCode())
+                    ^ Zobrist.carta(destinazione, a.size(), carta.getCode());
+            a.add(carta);
+        }
+        da.subList(base, da.size()).clear();
+    }
 
-        // Ricostruisci tutte le carte del gioco (52 carte totali, stessi oggetti ricostruiti)
-        // Prima costruiamo la mappa indice -> Card nuova
-        Card[] tutteLeCarteNuove = new Card[52];
-        for (Card.Suit seme : Card.Suit.values()) {
-            for (Card.Rank rango : Card.Rank.values()) {
-                int idx = seme.ordinal() * 13 + rango.ordinal();
-                tutteLeCarteNuove[idx] = new Card(seme, rango);
+    /**
+     * Sposta n carte una alla volta dalla cima di una pila all'altra,
+     * invertendone l'ordine (pescata e riciclo tra stock e scarto).
+     */
+    private void capovolgi(int sorgente, int destinazione, int n) {
+        List<Card> a = pila(destinazione);
+        for (int k = 0; k < n; k++) {
+            Card carta = togliCima(sorgente);
+            hashZobrist ^= Zobrist.carta(destinazione, a.size(), carta.getCode());
+            a.add(carta);
+        }
+    }
+
+    private Card togliCima(int indicePila) {
+        List<Card> da = pila(indicePila);
+        Card carta = da.remove(da.size() - 1);
+        hashZobrist ^= Zobrist.carta(indicePila, da.size(), carta.getCode());
+        return carta;
+    }
+
+    private void impostaPrimaScoperta(int colonna, int indice) {
+        hashZobrist ^= Zobrist.primaScoperta(colonna, primaScoperta[colonna])
+                ^ Zobrist.primaScoperta(colonna, indice);
+        primaScoperta[colonna] = indice;
+    }
+
+    /**
+     * Ricalcola l'hash da zero, dopo che le pile sono state ricostruite.
+     */
+    private void ricalcolaHash() {
+        long h = 0;
+        for (int indicePila = 0; indicePila <= Moves.STOCK; indicePila++) {
+            List<Card> carte = pila(indicePila);
+            for (int i = 0; i < carte.size(); i++) {
+                h ^= Zobrist.carta(indicePila, i, carte.get(i).getCode());
             }
         }
+        for (int col = 0; col < 7; col++) {
+            h ^= Zobrist.primaScoperta(col, primaScoperta[col]);
+        }
+        hashZobrist = h;
+    }
 
-        int pos = 0;
+    /**
+     * Hash Zobrist a 64 bit della posizione corrente (pile e carte scoperte,
+     * senza drag né statistiche). Costa O(1): viene aggiornato a ogni mossa,
+     * annullamento e salto nella timeline.
+     */
+    public long getZobristHash() {
+        return hashZobrist;
+    }
 
-        // Ricostruisci stock
-        pilaStock = new ArrayList<>();
-        int stockSize = snapshot[pos++] & 0xFF;
-        for (int i = 0; i < stockSize; i++) {
-            int codice = snapshot[pos++] & 0xFF;
-            Card c = tutteLeCarteNuove[codice & 0x7F];
-            c.facciaInSu = (codice & 0x80) != 0;
-            pilaStock.add(c);
+    /**
+     * Pila di partenza del drag corrente, nella numerazione di {@link Moves}.
+     */
+    private int sorgenteComando() {
+        if (sorgentePila == -2) {
+            return Moves.SCARTO;
         }
+        if (sorgentePila < -2) {
+            return Moves.FONDAMENTA - (sorgentePila + 3);
+        }
+        return sorgentePila;
+    }
 
-        // Ricostruisci scarto
-        pilaScarto = new ArrayList<>();
-        int scartoSize = snapshot[pos++] & 0xFF;
-        for (int i = 0; i < scartoSize; i++) {
-            int codice = snapshot[pos++] & 0xFF;
-            Card c = tutteLeCarteNuove[codice & 0x7F];
-            c.facciaInSu = (codice & 0x80) != 0;
-            pilaScarto.add(c);
+    // ── Stato compatto ───────────────────────────────────────────────────────
+    /**
+     * Fotografia immutabile della posizione corrente (senza drag né storico).
+     */
+    public BoardState getBoardState() {
+        return BoardState.fromModel(this);
+    }
+
+    /**
+     * Forma canonica della posizione corrente: stessa classe di equivalenza
+     * a meno dell'ordine delle colonne e delle fondamenta (vedi
+     * {@link BoardState#canonical()}).
+     */
+    public BoardState getCanonicalState() {
+        return getBoardState().canonical();
+    }
+
+    /**
+     * Sostituisce le pile con quelle descritte da uno stato compatto.
+     * Lo storico undo viene azzerato: la posizione è considerata nuova.
+     */
+    public void setBoardState(BoardState stato) {
+        ripristinaPile(stato);
+        svuotaRegistro();
+        registrazione = new RegistrazionePartita(difficoltaCorrente, numeroPartita, stato);
+        carteTrascinate.clear();
+        sorgentePila = -1;
+        sorgentePosizione = -1;
+    }
+
+    private void ripristinaPile(BoardState stato) {
+        if (pilaStock == null) {
+            pilaStock = new ArrayList<>();
+            pilaScarto = new ArrayList<>();
+            fondamenta = new ArrayList<>();
+            tavolo = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                fondamenta.add(new ArrayList<>());
+            }
+            for (int i = 0; i < 7; i++) {
+                tavolo.add(new ArrayList<>());
+            }
         }
 
-        // Ricostruisci fondamenta
-        fondamenta = new ArrayList<>();
+        // Le carte sono condivise: basta riempire le pile esistenti
+        pilaStock.clear();
+        for (int i = 0; i < stato.stockSize(); i++) {
+            pilaStock.add(Card.of(stato.stockCard(i)));
+        }
+        pilaScarto.clear();
+        for (int i = 0; i < stato.wasteSize(); i++) {
+            pilaScarto.add(Card.of(stato.wasteCard(i)));
+        }
         for (int f = 0; f < 4; f++) {
-            List<Card> fonda = new ArrayList<>();
-            int fSize = snapshot[pos++] & 0xFF;
-            for (int i = 0; i < fSize; i++) {
-                int codice = snapshot[pos++] & 0xFF;
-                Card c = tutteLeCarteNuove[codice & 0x7F];
-                c.facciaInSu = (codice & 0x80) != 0;
-                fonda.add(c);
+            List<Card> fonda = fondamenta.get(f);
+            fonda.clear();
+            int cima = stato.foundationTop(f);
+            if (cima >= 0) {
+                for (int codice = cima - cima % 13; codice <= cima; codice++) {
+                    fonda.add(Card.of(codice));
+                }
             }
-            fondamenta.add(fonda);
         }
-
-        // Ricostruisci tavolo
-        tavolo = new ArrayList<>();
         for (int col = 0; col < 7; col++) {
-            List<Card> colonna = new ArrayList<>();
-            int colSize = snapshot[pos++] & 0xFF;
-            for (int i = 0; i < colSize; i++) {
-                int codice = snapshot[pos++] & 0xFF;
-                Card c = tutteLeCarteNuove[codice & 0x7F];
-                c.facciaInSu = (codice & 0x80) != 0;
-                colonna.add(c);
+            List<Card> colonna = tavolo.get(col);
+            colonna.clear();
+            for (int i = 0; i < stato.tableauSize(col); i++) {
+                colonna.add(Card.of(stato.tableauCard(col, i)));
             }
-            tavolo.add(colonna);
+            primaScoperta[col] = stato.firstFaceUp(col);
         }
+        ricalcolaHash();
+    }
 
-        contatoreMovimenti = snapshot[pos] & 0xFF;
-        carteTrascinate.clear();
-        sorgentePila = -1;
-        sorgentePosizione = -1;
-        return true;
+    // ── Salvataggio ──────────────────────────────────────────────────────────
+    /**
+     * Scrive lo stato completo della partita (posizione, registro delle mosse,
+     * tempo, mosse, difficoltà e numero di partita) nel formato di
+     * {@link SalvataggioPartita}. Ogni mossa del registro occupa 2 byte.
+     */
+    void scriviStato(ByteBuffer buffer) {
+        buffer.put((byte) difficoltaCorrente.ordinal());
+        buffer.putLong(numeroPartita);
+        buffer.putInt(secondiTrascorsi);
+        buffer.putInt(contatoreMovimenti);
+        buffer.put((byte) (partitaIniziata ? 1 : 0));
+        byte[] posizione = getBoardState().toBytes();
+        buffer.put((byte) posizione.length);
+        buffer.put(posizione);
+        buffer.putInt(lunghezzaRegistro);
+        buffer.putInt(posizioneRegistro);
+        for (int i = 0; i < lunghezzaRegistro; i++) {
+            buffer.putShort((short) registro[i]);
+        }
+        getRegistrazione().scrivi(buffer);
     }
 
-    public boolean hasMossePrecedenti() {
-        return !storicoPila.isEmpty();
+    /**
+     * Spazio massimo occupato da {@link #scriviStato(ByteBuffer)}.
+     */
+    int dimensioneStato() {
+        return 1 + 8 + 4 + 4 + 1 + 1 + BoardState.CARTE + 52 + 4 + 4 + 2 * lunghezzaRegistro
+                + getRegistrazione().dimensione();
+    }
+
+    /**
+     * Ripristina uno stato scritto da {@link #scriviStato(ByteBuffer)}. I
+     * keyframe della timeline vengono ricostruiti ripercorrendo il registro.
+     */
+    void leggiStato(ByteBuffer buffer) {
+        Difficulty difficolta = Difficulty.values()[buffer.get()];
+        long seme = buffer.getLong();
+        int secondi = buffer.getInt();
+        int mosse = buffer.getInt();
+        boolean iniziata = buffer.get() != 0;
+        byte[] posizione = new byte[buffer.get() & 0xFF];
+        buffer.get(posizione);
+        int lunghezza = buffer.getInt();
+        int corrente = buffer.getInt();
+        if (lunghezza < 0 || corrente < 0 || corrente > lunghezza || lunghezza > buffer.remaining() / 2) {
+            throw new IllegalArgumentException("Registro delle mosse non valido");
+        }
+        int[] comandi = new int[Math.max(64, lunghezza)];
+        for (int i = 0; i < lunghezza; i++) {
+            comandi[i] = buffer.getShort() & 0xFFFF;
+        }
+        RegistrazionePartita replay = RegistrazionePartita.leggi(buffer);
+
+        setDifficulty(difficolta);
+        numeroPartita = seme;
+        setBoardState(BoardState.fromBytes(posizione));
+        secondiTrascorsi = secondi;
+        contatoreMovimenti = mosse;
+        partitaIniziata = iniziata;
+        registrazione = null;
+        sostituisciRegistro(comandi, lunghezza, corrente);
+        registrazione = replay;
+    }
+
+    /**
+     * Installa un registro le cui prime {@code corrente} mosse sono già
+     * state giocate: torna all'inizio e lo ripercorre per ricostruire i
+     * keyframe della timeline.
+     */
+    private void sostituisciRegistro(int[] comandi, int lunghezza, int corrente) {
+        registro = comandi;
+        lunghezzaRegistro = lunghezza;
+        posizioneRegistro = corrente;
+        while (posizioneRegistro > 0) {
+            annulla(registro[--posizioneRegistro]);
+        }
+        numeroKeyframe = 0;
+        aggiungiKeyframe();
+        while (posizioneRegistro < lunghezza) {
+            esegui(registro[posizioneRegistro++]);
+            if (posizioneRegistro % INTERVALLO_KEYFRAME == 0) {
+                aggiungiKeyframe();
+            }
+        }
+        vaiAMossa(corrente);
+    }
+
+    // ── Replay ───────────────────────────────────────────────────────────────
+    /**
+     * Replay della partita in corso, dalla smazzata alla mossa attuale.
+     */
+    RegistrazionePartita getRegistrazione() {
+        if (registrazione == null) {
+            return new RegistrazionePartita(difficoltaCorrente, numeroPartita, getBoardState());
+        }
+        return registrazione;
+    }
+
+    /**
+     * Prepara la riproduzione di un replay: ogni evento diventa un comando
+     * del registro (un annulla diventa la mossa annullata con
+     * {@link Moves#INVERSA}), quindi la riproduzione e i salti passano da
+     * {@link #vaiAMossa(int)} con i suoi keyframe. La partita riparte dalla
+     * posizione iniziale e non viene più registrata.
+     *
+     * @throws IllegalArgumentException se un evento non è legale
+     */
+    void caricaRegistrazione(RegistrazionePartita replay) {
+        setDifficulty(replay.getDifficulty());
+        if (replay.getInizio() == null) {
+            initGame(replay.getDealSeed());
+        } else {
+            numeroPartita = replay.getDealSeed();
+            secondiTrascorsi = 0;
+            contatoreMovimenti = 0;
+            partitaIniziata = false;
+            setBoardState(replay.getInizio());
+        }
+        registrazione = null;
+
+        int[] comandi = new int[Math.max(64, replay.size())];
+        int n = 0;
+        int[] mosse = new int[MAX_MOSSE_LEGALI];
+        for (int i = 0; i < replay.size(); i++) {
+            int evento = replay.evento(i);
+            int destinazione = posizioneRegistro;
+            if (evento == RegistrazionePartita.ANNULLA) {
+                destinazione--;
+            } else if (evento == RegistrazionePartita.RIPETI) {
+                destinazione++;
+            } else if (evento == RegistrazionePartita.SALTO) {
+                destinazione = replay.salto(i);
+                i += 4;
+            } else {
+                if (!applicaEvento(evento, mosse)) {
+                    throw new IllegalArgumentException("Mossa non valida nel replay: evento " + i);
+                }
+                if (n == comandi.length) {
+                    comandi = Arrays.copyOf(comandi, n * 2);
+                }
+                comandi[n++] = registro[posizioneRegistro - 1];
+                continue;
+            }
+
+            if (destinazione < 0 || destinazione > lunghezzaRegistro) {
+                throw new IllegalArgumentException("Salto non valido nel replay: evento " + i);
+            }
+            // Annulla e ripeti un passo alla volta: ogni passo è un comando
+            while (posizioneRegistro != destinazione) {
+                if (n == comandi.length) {
+                    comandi = Arrays.copyOf(comandi, n * 2);
+                }
+                if (posizioneRegistro > destinazione) {
+                    int comando = registro[--posizioneRegistro];
+                    annulla(comando);
+                    comandi[n++] = comando | Moves.INVERSA;
+                } else {
+                    int comando = registro[posizioneRegistro++];
+                    esegui(comando);
+                    comandi[n++] = comando;
+                }
+            }
+        }
+        clearDrag();
+        sostituisciRegistro(comandi, n, n);
+        vaiAMossa(0);
+    }
+
+    /**
+     * Gioca un evento mossa del replay con le stesse operazioni
+     * dell'interfaccia; il numero di carte viene dalle mosse legali.
+     * Dalla fondamenta si sposta sempre una carta, anche verso un'altra
+     * fondamenta (un asso trascinato su una vuota), mossa che
+     * {@link #generaMosseLegali} non genera.
+     */
+    private boolean applicaEvento(int evento, int[] mosse) {
+        if (evento >= RegistrazionePartita.AUTOMATICA) {
+            int colonna = (evento - RegistrazionePartita.AUTOMATICA) % 8;
+            int f = (evento - RegistrazionePartita.AUTOMATICA) / 8;
+            return colonna < 7 && f < 4 && autoMoveToFoundation(colonna, f);
+        }
+        int sorgente = evento >> 4;
+        int destinazione = evento & 0xF;
+        if (Moves.isFoundation(sorgente)) {
+            return (Moves.isFoundation(destinazione) || Moves.isTableau(destinazione))
+                    && applyMove(Moves.of(sorgente, destinazione, 1));
+        }
+        int numero = generaMosseLegali(mosse, 0);
+        for (int i = 0; i < numero; i++) {
+            if (Moves.source(mosse[i]) == sorgente && Moves.destination(mosse[i]) == destinazione) {
+                return applyMove(mosse[i]);
+            }
+        }
+        return false;
     }
 
     // ── Inizializzazione partita ──────────────────────────────────────────────
+    /**
+     * Nuova partita con un numero di partita casuale.
+     */
     public void initGame() {
+        initGame(DealRandom.nuovoNumeroPartita());
+    }
+
+    /**
+     * Nuova partita riproducibile: lo stesso numero dà sempre la stessa
+     * smazzata.
+     */
+    public void initGame(long dealSeed) {
+        numeroPartita = dealSeed;
         mazzo = new Deck();
-        mazzo.shuffle();
+        mazzo.shuffle(new DealRandom(dealSeed));
 
         pilaStock = new ArrayList<>();
         pilaScarto = new ArrayList<>();
         fondamenta = new ArrayList<>();
         tavolo = new ArrayList<>();
-        storicoPila.clear();
 
         secondiTrascorsi = 0;
         contatoreMovimenti = 0;
@@ -299,12 +764,9 @@ public class GameModel {
 
         for (int col = 0; col < 7; col++) {
             for (int riga = 0; riga <= col; riga++) {
-                Card carta = mazzo.draw();
-                if (riga == col) {
-                    carta.flip();
-                }
-                tavolo.get(col).add(carta);
+                tavolo.get(col).add(mazzo.draw());
             }
+            primaScoperta[col] = col;
         }
 
         while (mazzo.hasCards()) {
@@ -312,6 +774,9 @@ public class GameModel {
         }
 
         carteTrascinate = new ArrayList<>();
+        ricalcolaHash();
+        svuotaRegistro();
+        registrazione = new RegistrazionePartita(difficoltaCorrente, dealSeed, null);
     }
 
     // ── Pesca dallo stock ─────────────────────────────────────────────────────
@@ -328,23 +793,12 @@ public class GameModel {
      * DIFFICILE: pesca 3 carte alla volta.
      */
     public void drawFromStock() {
-        salvaStatoPerUndo();
         if (!pilaStock.isEmpty()) {
             int daPescare = Math.min(carteDaPescareAllaVolta, pilaStock.size());
-            for (int i = 0; i < daPescare; i++) {
-                Card carta = pilaStock.remove(pilaStock.size() - 1);
-                carta.facciaInSu = true;
-                pilaScarto.add(carta);
-            }
-            incrementaMovimenti();
+            registra(esegui(Moves.of(Moves.STOCK, Moves.SCARTO, daPescare)));
         } else if (!pilaScarto.isEmpty()) {
-            // Reset: rimetti tutte le carte dello scarto nello stock
-            Collections.reverse(pilaScarto);
-            for (Card carta : pilaScarto) {
-                carta.facciaInSu = false;
-                pilaStock.add(carta);
-            }
-            pilaScarto.clear();
+            // Il riciclo dello scarto non conta come mossa
+            registra(esegui(Moves.of(Moves.SCARTO, Moves.STOCK, pilaScarto.size()) | Moves.NON_CONTATA));
         }
     }
 
@@ -365,25 +819,124 @@ public class GameModel {
 
     // ── Regole di posizionamento ──────────────────────────────────────────────
     public boolean canPlaceOnFoundation(Card carta, int indiceFondamenta) {
-        List<Card> f = fondamenta.get(indiceFondamenta);
-        if (f.isEmpty()) {
-            return carta.getRank() == Card.Rank.ACE;
-        }
-        Card cima = f.get(f.size() - 1);
-        return carta.getSuit() == cima.getSuit()
-                && carta.getRank().ordinal() == cima.getRank().ordinal() + 1;
+        return regolaFondamenta(carta.getCode(), cimaFondamenta(indiceFondamenta));
     }
 
     public boolean canPlaceOnTableau(Card carta, int colonna) {
-        List<Card> pila = tavolo.get(colonna);
-        if (pila.isEmpty()) {
-            return carta.getRank() == Card.Rank.KING;
+        return regolaTavolo(carta.getCode(), cimaColonna(colonna));
+    }
+
+    /**
+     * Regola della fondamenta sui codici carta (cima = -1 se vuota):
+     * asso su vuota, altrimenti stesso seme e rango successivo.
+     */
+    static boolean regolaFondamenta(int carta, int cima) {
+        if (cima < 0) {
+            return carta % 13 == 0;
         }
-        Card cima = pila.get(pila.size() - 1);
-        boolean cartaRossa = carta.getSuit() == Card.Suit.HEARTS || carta.getSuit() == Card.Suit.DIAMONDS;
-        boolean cimaRossa = cima.getSuit() == Card.Suit.HEARTS || cima.getSuit() == Card.Suit.DIAMONDS;
-        return cartaRossa != cimaRossa
-                && carta.getRank().ordinal() == cima.getRank().ordinal() - 1;
+        return carta == cima + 1 && carta % 13 != 0;
+    }
+
+    /**
+     * Regola del tavolo sui codici carta (cima = -1 se vuota):
+     * re su vuota, altrimenti colore alterno e rango precedente.
+     */
+    static boolean regolaTavolo(int carta, int cima) {
+        if (cima < 0) {
+            return carta % 13 == 12;
+        }
+        return isRossa(carta) != isRossa(cima) && carta % 13 == cima % 13 - 1;
+    }
+
+    // Cuori e quadri sono i primi due semi
+    static boolean isRossa(int carta) {
+        return carta < 26;
+    }
+
+    // ── Generatore di mosse ──────────────────────────────────────────────────
+    /**
+     * Spazio sufficiente per le mosse legali di qualsiasi posizione.
+     */
+    public static final int MAX_MOSSE_LEGALI = 256;
+
+    /**
+     * Scrive in buf, a partire da pos, tutte le mosse legali della posizione
+     * corrente codificate con {@link Moves}: scarto → fondamenta/tavolo,
+     * cima del tavolo → fondamenta, ogni sequenza scoperta → altra colonna,
+     * fondamenta → tavolo e infine pescata o riciclo dello scarto.
+     * Le mosse che scoprono una carta hanno il bit {@link Moves#SCOPERTA}.
+     * Non alloca nulla; ritorna la posizione successiva all'ultima mossa.
+     */
+    public int generaMosseLegali(int[] buf, int pos) {
+        if (!pilaScarto.isEmpty()) {
+            int carta = pilaScarto.get(pilaScarto.size() - 1).getCode();
+            for (int f = 0; f < 4; f++) {
+                if (regolaFondamenta(carta, cimaFondamenta(f))) {
+                    buf[pos++] = Moves.of(Moves.SCARTO, Moves.FONDAMENTA + f, 1);
+                }
+            }
+            for (int dest = 0; dest < 7; dest++) {
+                if (regolaTavolo(carta, cimaColonna(dest))) {
+                    buf[pos++] = Moves.of(Moves.SCARTO, dest, 1);
+                }
+            }
+        }
+
+        for (int col = 0; col < 7; col++) {
+            List<Card> pila = tavolo.get(col);
+            int dimensione = pila.size();
+            if (dimensione == 0) {
+                continue;
+            }
+            int prima = primaScoperta[col];
+            int scopre = prima > 0 ? Moves.SCOPERTA : 0;
+
+            int cima = pila.get(dimensione - 1).getCode();
+            for (int f = 0; f < 4; f++) {
+                if (regolaFondamenta(cima, cimaFondamenta(f))) {
+                    buf[pos++] = Moves.of(col, Moves.FONDAMENTA + f, 1)
+                            | (dimensione - 1 == prima ? scopre : 0);
+                }
+            }
+            for (int i = prima; i < dimensione; i++) {
+                int carta = pila.get(i).getCode();
+                for (int dest = 0; dest < 7; dest++) {
+                    if (dest != col && regolaTavolo(carta, cimaColonna(dest))) {
+                        buf[pos++] = Moves.of(col, dest, dimensione - i) | (i == prima ? scopre : 0);
+                    }
+                }
+            }
+        }
+
+        for (int f = 0; f < 4; f++) {
+            int carta = cimaFondamenta(f);
+            if (carta < 0) {
+                continue;
+            }
+            for (int dest = 0; dest < 7; dest++) {
+                if (regolaTavolo(carta, cimaColonna(dest))) {
+                    buf[pos++] = Moves.of(Moves.FONDAMENTA + f, dest, 1);
+                }
+            }
+        }
+
+        if (!pilaStock.isEmpty()) {
+            buf[pos++] = Moves.of(Moves.STOCK, Moves.SCARTO,
+                    Math.min(carteDaPescareAllaVolta, pilaStock.size()));
+        } else if (!pilaScarto.isEmpty()) {
+            buf[pos++] = Moves.of(Moves.SCARTO, Moves.STOCK, pilaScarto.size());
+        }
+        return pos;
+    }
+
+    private int cimaFondamenta(int f) {
+        List<Card> fonda = fondamenta.get(f);
+        return fonda.isEmpty() ? -1 : fonda.get(fonda.size() - 1).getCode();
+    }
+
+    private int cimaColonna(int col) {
+        List<Card> pila = tavolo.get(col);
+        return pila.isEmpty() ? -1 : pila.get(pila.size() - 1).getCode();
     }
 
     // ── Posizionamento carte (drop) ───────────────────────────────────────────
@@ -395,10 +948,7 @@ public class GameModel {
         if (!canPlaceOnFoundation(carta, indiceFondamenta)) {
             return false;
         }
-        salvaStatoPerUndo();
-        rimuoviCarteDallaSorgente();
-        fondamenta.get(indiceFondamenta).add(carta);
-        incrementaMovimenti();
+        registra(esegui(Moves.of(sorgenteComando(), Moves.FONDAMENTA + indiceFondamenta, 1)));
         return true;
     }
 
@@ -407,10 +957,7 @@ public class GameModel {
         if (!canPlaceOnTableau(primaCarta, colonna)) {
             return false;
         }
-        salvaStatoPerUndo();
-        rimuoviCarteDallaSorgente();
-        tavolo.get(colonna).addAll(carteTrascinate);
-        incrementaMovimenti();
+        registra(esegui(Moves.of(sorgenteComando(), colonna, carteTrascinate.size())));
         return true;
     }
 
@@ -423,28 +970,64 @@ public class GameModel {
         return true;
     }
 
-    public void rimuoviCarteDallaSorgente() {
-        if (sorgentePila == -2) {
-            if (!pilaScarto.isEmpty()) {
-                pilaScarto.remove(pilaScarto.size() - 1);
+    /**
+     * Esegue una mossa codificata con {@link Moves} passando per le stesse
+     * operazioni usate dall'interfaccia (drag e drop o pescata).
+     * Ritorna false se la mossa non è legale nella posizione corrente.
+     */
+    public boolean applyMove(int mossa) {
+        int sorgente = Moves.source(mossa);
+        int destinazione = Moves.destination(mossa);
+        if (sorgente == Moves.STOCK) {
+            if (pilaStock.isEmpty()) {
+                return false;
             }
-        } else if (sorgentePila < -2) {
-            int idx = -(sorgentePila + 3);
-            List<Card> f = fondamenta.get(idx);
-            if (!f.isEmpty()) {
-                f.remove(f.size() - 1);
+            drawFromStock();
+            return true;
+        }
+        if (destinazione == Moves.STOCK) {
+            if (!pilaStock.isEmpty() || pilaScarto.isEmpty()) {
+                return false;
             }
-        } else if (sorgentePila >= 0) {
-            List<Card> pila = tavolo.get(sorgentePila);
-            pila.removeAll(carteTrascinate);
-            if (!pila.isEmpty() && !pila.get(pila.size() - 1).isFaceUp()) {
-                pila.get(pila.size() - 1).flip();
+            drawFromStock();
+            return true;
+        }
+
+        clearDrag();
+        if (sorgente == Moves.SCARTO) {
+            startDragFromWaste();
+        } else if (Moves.isFoundation(sorgente)) {
+            startDragFromFoundation(sorgente - Moves.FONDAMENTA);
+        } else {
+            List<Card> pila = tavolo.get(sorgente);
+            int inizio = pila.size() - Moves.count(mossa);
+            if (inizio < 0 || inizio < primaScoperta[sorgente]) {
+                return false;
             }
+            startDragFromTableau(sorgente, inizio);
         }
+        if (carteTrascinate.isEmpty()) {
+            return false;
+        }
+
+        boolean eseguita = Moves.isFoundation(destinazione)
+                ? tryPlaceOnFoundation(destinazione - Moves.FONDAMENTA)
+                : tryPlaceOnTableau(destinazione);
+        clearDrag();
+        return eseguita;
     }
 
-    public void removeCardFromSource() {
-        rimuoviCarteDallaSorgente();
+    /**
+     * Mossa dell'auto-completamento: dalla cima della colonna alla fondamenta.
+     * Entra nello storico undo ma non nel contatore delle mosse.
+     */
+    public boolean autoMoveToFoundation(int colonna, int indiceFondamenta) {
+        List<Card> pila = tavolo.get(colonna);
+        if (pila.isEmpty() || !canPlaceOnFoundation(pila.get(pila.size() - 1), indiceFondamenta)) {
+            return false;
+        }
+        registra(esegui(Moves.of(colonna, Moves.FONDAMENTA + indiceFondamenta, 1) | Moves.NON_CONTATA));
+        return true;
     }
 
     // ── Gestione drag ─────────────────────────────────────────────────────────
@@ -517,6 +1100,17 @@ public class GameModel {
         return tavolo;
     }
 
+    /**
+     * Indice della prima carta scoperta della colonna (0 se la colonna è vuota).
+     */
+    public int getFirstFaceUp(int colonna) {
+        return primaScoperta[colonna];
+    }
+
+    public boolean isFaceUp(int colonna, int indice) {
+        return indice >= primaScoperta[colonna];
+    }
+
     public List<Card> getDraggedCards() {
         return carteTrascinate;
     }
@@ -529,6 +1123,10 @@ public class GameModel {
         return sorgentePosizione;
     }
 
+    public long getDealSeed() {
+        return numeroPartita;
+    }
+
     public int getElapsedSeconds() {
         return secondiTrascorsi;
     }
@@ -4,10 +4,8 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import java.io.IOException;
 import java.util.*;
 import java.util.List;
-import javax.imageio.ImageIO;
 
 /**
  * VIEW - Responsabile del rendering grafico e della costruzione della UI.
@@ -45,11 +43,13 @@ public class GameView extends JFrame {
     private JLabel etichettaTimer;
     private JLabel etichettaMovimenti;
     private JLabel etichettaDifficolta;
+    private JLabel etichettaPartita;
+    private JSlider sliderTimeline;
+    private boolean aggiornamentoTimeline = false; // la vista sta muovendo lo slider
     public PannelloGioco gamePanel;
 
     // ── Immagini carte ───────────────────────────────────────────────────────
-    private Map<String, BufferedImage> immaginiCarte;
-    private BufferedImage immagineRetro;
+    private CacheImmaginiCarte immaginiCarte;
 
     // ── Costruttore ──────────────────────────────────────────────────────────
     public GameView() {
@@ -157,26 +157,73 @@ public class GameView extends JFrame {
         etichettaDifficolta = (JLabel) ((JPanel) pannelloDiff.getComponent(1)).getComponent(0);
         pannelloStatistiche.add(pannelloDiff);
 
+        JPanel pannelloPartita = creaStatPanel("Partita:", "#0");
+        etichettaPartita = (JLabel) ((JPanel) pannelloPartita.getComponent(1)).getComponent(0);
+        pannelloStatistiche.add(pannelloPartita);
+
         pannelloSuperiore.add(pannelloStatistiche, BorderLayout.CENTER);
         return pannelloSuperiore;
     }
 
     // ── Pannello inferiore ───────────────────────────────────────────────────
     public JPanel buildBottomPanel() {
-        JPanel pannelloInferiore = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 12));
+        JPanel pannelloInferiore = new JPanel(new BorderLayout());
         pannelloInferiore.setBackground(VERDE_SCURO);
         pannelloInferiore.setBorder(BorderFactory.createCompoundBorder(
                 BorderFactory.createMatteBorder(3, 0, 0, 0, ORO),
                 BorderFactory.createEmptyBorder(5, 0, 5, 0)
         ));
 
+        // Timeline della partita: trascinando si salta a qualsiasi mossa giocata
+        JPanel pannelloTimeline = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 0));
+        pannelloTimeline.setBackground(VERDE_SCURO);
+        JLabel etichettaTimeline = new JLabel("Mosse giocate");
+        etichettaTimeline.setFont(new Font("Arial", Font.BOLD, 12));
+        etichettaTimeline.setForeground(ORO);
+        pannelloTimeline.add(etichettaTimeline);
+        sliderTimeline = new JSlider(0, 0, 0);
+        sliderTimeline.setName("timelineSlider");
+        sliderTimeline.setBackground(VERDE_SCURO);
+        sliderTimeline.setPreferredSize(new Dimension(460, 24));
+        sliderTimeline.setToolTipText("Mossa 0 di 0");
+        pannelloTimeline.add(sliderTimeline);
+
+        // Replay della partita: velocità e avvio/arresto della riproduzione
+        JComboBox<String> velocitaReplay = new JComboBox<>(new String[]{"1x", "10x", "Istantaneo"});
+        velocitaReplay.setName("replaySpeed");
+        velocitaReplay.setFont(new Font("Arial", Font.BOLD, 12));
+        velocitaReplay.setToolTipText("Velocità del replay");
+        pannelloTimeline.add(velocitaReplay);
+        JButton bottoneReplay = creaBottoneStilizzato("Rivedi", new Color(60, 140, 140), Color.WHITE);
+        bottoneReplay.setName("replayButton");
+        bottoneReplay.setFont(new Font("Arial", Font.BOLD, 12));
+        bottoneReplay.setBorder(BorderFactory.createEmptyBorder(4, 12, 4, 12));
+        pannelloTimeline.add(bottoneReplay);
+        pannelloInferiore.add(pannelloTimeline, BorderLayout.NORTH);
+
+        JPanel pannelloBottoni = new JPanel(new FlowLayout(FlowLayout.CENTER, 15, 12));
+        pannelloBottoni.setBackground(VERDE_SCURO);
+        pannelloInferiore.add(pannelloBottoni, BorderLayout.CENTER);
+
         JButton bottoneNuovaPartita = creaBottoneStilizzato("Nuova Partita", new Color(50, 120, 200), Color.WHITE);
         bottoneNuovaPartita.setName("newGameButton");
-        pannelloInferiore.add(bottoneNuovaPartita);
+        pannelloBottoni.add(bottoneNuovaPartita);
 
         JButton bottoneMossaPrecedente = creaBottoneStilizzato("Mossa Precedente", new Color(140, 80, 180), Color.WHITE);
         bottoneMossaPrecedente.setName("undoButton");
-        pannelloInferiore.add(bottoneMossaPrecedente);
+        pannelloBottoni.add(bottoneMossaPrecedente);
+
+        JButton bottoneMossaSuccessiva = creaBottoneStilizzato("Ripeti Mossa", new Color(180, 110, 60), Color.WHITE);
+        bottoneMossaSuccessiva.setName("redoButton");
+        pannelloBottoni.add(bottoneMossaSuccessiva);
+
+        JButton bottoneSuggerimento = creaBottoneStilizzato("Suggerimento", new Color(200, 160, 30), Color.WHITE);
+        bottoneSuggerimento.setName("hintButton");
+        pannelloBottoni.add(bottoneSuggerimento);
+
+        JButton bottoneStatistiche = creaBottoneStilizzato("Statistiche", new Color(70, 90, 110), Color.WHITE);
+        bottoneStatistiche.setName("statsButton");
+        pannelloBottoni.add(bottoneStatistiche);
 
         return pannelloInferiore;
     }
@@ -200,6 +247,37 @@ public class GameView extends JFrame {
         }
     }
 
+    public void updateDealLabel(long numeroPartita) {
+        if (etichettaPartita != null) {
+            etichettaPartita.setText("#" + numeroPartita);
+        }
+    }
+
+    /**
+     * Porta lo slider sulla posizione con un solo evento: con setMaximum e
+     * setValue separati il listener vedrebbe per un attimo la posizione
+     * vecchia e la interpreterebbe come un salto del giocatore.
+     */
+    public void updateTimeline(int posizione, int lunghezza) {
+        if (sliderTimeline != null) {
+            aggiornamentoTimeline = true;
+            try {
+                sliderTimeline.getModel().setRangeProperties(posizione, 0, 0, lunghezza, false);
+            } finally {
+                aggiornamentoTimeline = false;
+            }
+            sliderTimeline.setToolTipText("Mossa " + posizione + " di " + lunghezza);
+        }
+    }
+
+    /**
+     * Vero mentre la vista stessa aggiorna lo slider: i listener devono
+     * reagire solo ai movimenti del giocatore.
+     */
+    public boolean isAggiornamentoTimeline() {
+        return aggiornamentoTimeline;
+    }
+
     // ── Dialogo vittoria ─────────────────────────────────────────────────────
     public GameModel.Difficulty showVictoryDialog(int secondiTrascorsi, int contatoreMovimenti, GameModel.Difficulty difficolta) {
         JPanel pannello = new JPanel();
@@ -269,6 +347,56 @@ public class GameView extends JFrame {
         return scelta[0];
     }
 
+    // ── Dialogo statistiche ──────────────────────────────────────────────────
+    public void showStatisticsDialog(ArchivioStatistiche.Riepilogo facile, ArchivioStatistiche.Riepilogo difficile) {
+        JPanel pannello = new JPanel(new GridLayout(0, 3, 25, 8));
+        pannello.setBackground(Color.WHITE);
+        pannello.setBorder(BorderFactory.createEmptyBorder(20, 30, 20, 30));
+
+        aggiungiRigaStatistiche(pannello, "", "Facile", "Difficile", true);
+        aggiungiRigaStatistiche(pannello, "Partite:",
+                String.valueOf(facile.getPartiteGiocate()), String.valueOf(difficile.getPartiteGiocate()), false);
+        aggiungiRigaStatistiche(pannello, "Vinte:",
+                String.valueOf(facile.getPartiteVinte()), String.valueOf(difficile.getPartiteVinte()), false);
+        aggiungiRigaStatistiche(pannello, "Vittorie:",
+                String.format("%.1f%%", facile.getPercentualeVittorie()),
+                String.format("%.1f%%", difficile.getPercentualeVittorie()), false);
+        aggiungiRigaStatistiche(pannello, "Miglior tempo:",
+                formattaTempo(facile.getMigliorTempo()), formattaTempo(difficile.getMigliorTempo()), false);
+        aggiungiRigaStatistiche(pannello, "Meno mosse:",
+                formattaMosse(facile.getMigliorMosse()), formattaMosse(difficile.getMigliorMosse()), false);
+        aggiungiRigaStatistiche(pannello, "Tempo mediano:",
+                formattaTempo(facile.getPercentileTempo(50)), formattaTempo(difficile.getPercentileTempo(50)), false);
+        aggiungiRigaStatistiche(pannello, "90% entro:",
+                formattaTempo(facile.getPercentileTempo(90)), formattaTempo(difficile.getPercentileTempo(90)), false);
+
+        JOptionPane.showMessageDialog(this, pannello, "Statistiche", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    private void aggiungiRigaStatistiche(JPanel pannello, String etichetta, String facile, String difficile,
+            boolean intestazione) {
+        JLabel l = new JLabel(etichetta);
+        l.setFont(new Font("Arial", Font.BOLD, 16));
+        pannello.add(l);
+        for (String valore : new String[]{facile, difficile}) {
+            JLabel v = new JLabel(valore, SwingConstants.CENTER);
+            v.setFont(new Font("Arial", intestazione ? Font.BOLD : Font.PLAIN, 16));
+            v.setForeground(intestazione ? ORO : new Color(50, 50, 50));
+            pannello.add(v);
+        }
+    }
+
+    private static String formattaTempo(int secondi) {
+        if (secondi < 0) {
+            return "-";
+        }
+        return String.format("%02d:%02d", secondi / 60, secondi % 60);
+    }
+
+    private static String formattaMosse(int mosse) {
+        return mosse < 0 ? "-" : String.valueOf(mosse);
+    }
+
     private void aggiungiStatVittoria(JPanel pannello, String etichetta, String valore) {
         JPanel pannelloStat = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         pannelloStat.setBackground(Color.WHITE);
@@ -333,64 +461,39 @@ public class GameView extends JFrame {
 
     // ── Caricamento immagini ─────────────────────────────────────────────────
     private void caricaImmaginiCarte() {
-        immaginiCarte = new HashMap<>();
-        immagineRetro = null;
-
-        Map<String, String> mappatura = new LinkedHashMap<>();
-        String[] semi = {"hearts", "diamonds", "clubs", "spades"};
-        String[] ranghi = {"ace", "2", "3", "4", "5", "6", "7", "8", "9", "10", "jack", "queen", "king"};
-        String[] simboliSemi = {"♥", "♦", "♣", "♠"};
-        String[] simboliRanghi = {"A", "2", "3", "4", "5", "6", "7", "8", "9", "10", "J", "Q", "K"};
-
-        for (int s = 0; s < semi.length; s++) {
-            for (int r = 0; r < ranghi.length; r++) {
-                String nomefile = (r < 10)
-                        ? ranghi[r] + "_of_" + semi[s] + ".png"
-                        : ranghi[r] + "_of_" + semi[s] + "2.png";
-                mappatura.put(nomefile, simboliRanghi[r] + simboliSemi[s]);
-            }
-        }
-        mappatura.put("ace_of_spades2.png", "A♠");
-        mappatura.put("ace_of_spades.png", "A♠");
-
-        File cartella = new File("cards_images");
-        if (cartella.exists() && cartella.isDirectory()) {
-            for (Map.Entry<String, String> voce : mappatura.entrySet()) {
-                File f = new File(cartella, voce.getKey());
-                if (f.exists()) {
-                    try {
-                        BufferedImage img = ImageIO.read(f);
-                        if (img != null) {
-                            immaginiCarte.put(voce.getValue(), img);
-                        }
-                    } catch (IOException e) {
-                        System.err.println("❌ " + e.getMessage());
-                    }
-                }
-            }
-            File[] retri = cartella.listFiles((d, n) -> {
-                String l = n.toLowerCase();
-                return l.contains("back") || l.contains("blue") || l.contains("dorso");
-            });
-            if (retri != null) {
-                for (File f : retri) {
-                    try {
-                        immagineRetro = ImageIO.read(f);
-                        break;
-                    } catch (IOException e) {
-                        System.err.println("❌ retro: " + e.getMessage());
-                    }
-                }
+        // Le immagini (atlante nel jar, altrimenti cards_images) arrivano in
+        // background: finché mancano il pannello disegna le carte
+        // vettoriali, poi ridisegna quando sono pronte
+        immaginiCarte = new CacheImmaginiCarte(LARGHEZZA_CARTA, ALTEZZA_CARTA, new File("cards_images"), () -> {
+            if (gamePanel != null) {
+                gamePanel.invalidaStrato();
+                gamePanel.repaint();
             }
+        });
+        if (!GraphicsEnvironment.isHeadless()) {
+            immaginiCarte.prepara(GraphicsEnvironment.getLocalGraphicsEnvironment()
+                    .getDefaultScreenDevice().getDefaultConfiguration());
         }
     }
 
+    /**
+     * Sprite delle facce per nome ("A♠", "10♥"...); costruita a ogni
+     * chiamata, non serve al disegno.
+     */
     public Map<String, BufferedImage> getCardImages() {
-        return immaginiCarte;
+        Map<String, BufferedImage> immagini = new LinkedHashMap<>();
+        for (int codice = 0; codice < 52; codice++) {
+            BufferedImage sprite = immaginiCarte.getFaccia(codice);
+            if (sprite != null) {
+                GameModel.Card carta = GameModel.Card.of(codice);
+                immagini.put(carta.getRank().toString() + carta.getSuit().toString(), sprite);
+            }
+        }
+        return immagini;
     }
 
     public BufferedImage getCardBackImage() {
-        return immagineRetro;
+        return immaginiCarte.getRetro();
     }
 
     // ── PannelloGioco ─────────────────────────────────────────────────────────
@@ -403,24 +506,122 @@ public class GameView extends JFrame {
         private int indiceOrigine = -1;
         private GameModel modello;
 
-        // Carta in volo durante l'autocompletamento
-        private GameModel.Card cartaInVolo = null;
-        private Point posizioneVolo = null;
+        // Carte in volo durante l'autocompletamento, nell'ordine di
+        // partenza (l'ultima partita si disegna sopra)
+        private final GameModel.Card[] carteInVolo = new GameModel.Card[52];
+        private final int[] xVolo = new int[52];
+        private final int[] yVolo = new int[52];
+        private final Rectangle[] areeVolo = new Rectangle[52];
+        private int numeroVoli = 0;
+
+        // Mossa suggerita da evidenziare (codifica Moves), -1 se nessuna
+        private int suggerimento = -1;
+
+        // Aree occupate al frame precedente da carte trascinate e carte in
+        // volo (ombra compresa): spostandole si ridisegna solo la vecchia
+        // area più la nuova, non tutto il tavolo
+        private final Rectangle areaTrascinamento = new Rectangle();
+        private static final int MARGINE_OMBRA = 10;
+
+        // Risorse del disegno create una volta: un frame a regime non alloca
+        private static final Color OMBRA_TRASCINATA = new Color(0, 0, 0, 100);
+        private static final Color OMBRA_TRASCINATA_LONTANA = new Color(0, 0, 0, 50);
+        private static final Color OMBRA_VOLO = new Color(0, 0, 0, 80);
+        private static final BasicStroke TRATTO_SUGGERIMENTO = new BasicStroke(4);
+        private static final BasicStroke TRATTO_DESTINAZIONE = new BasicStroke(4,
+                BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 0, new float[]{10, 6}, 0);
+        // Carta senza immagine
+        private static final Color BORDO_CARTA = new Color(200, 200, 200);
+        private static final Color ROSSO_CARTA = new Color(200, 0, 0);
+        private static final BasicStroke TRATTO_CARTA = new BasicStroke(2);
+        private static final Font FONT_CARTA = new Font("Arial", Font.BOLD, 24);
+
+        // Tavolo senza le carte trascinate, disegnato all'inizio del drag
+        private BufferedImage strato = null;
+        private boolean stratoValido = false;
+
+        /**
+         * Mette in volo la carta, o la sposta se è già in volo, e ridisegna
+         * solo dove era e dove è ora.
+         */
+        public void setCartaInVolo(GameModel.Card carta, int x, int y) {
+            int i = indiceVolo(carta);
+            if (i < 0) {
+                i = numeroVoli++;
+                carteInVolo[i] = carta;
+            }
+            xVolo[i] = x;
+            yVolo[i] = y;
+            ridisegnaArea(areeVolo[i], true, x, y, ALTEZZA_CARTA);
+        }
+
+        /**
+         * La carta è arrivata: da qui si disegna solo nella sua pila.
+         */
+        public void rimuoviCartaInVolo(GameModel.Card carta) {
+            int i = indiceVolo(carta);
+            if (i < 0) {
+                return;
+            }
+            Rectangle area = areeVolo[i];
+            ridisegnaArea(area, false, 0, 0, 0);
+            for (int j = i; j < numeroVoli - 1; j++) {
+                carteInVolo[j] = carteInVolo[j + 1];
+                xVolo[j] = xVolo[j + 1];
+                yVolo[j] = yVolo[j + 1];
+                areeVolo[j] = areeVolo[j + 1];
+            }
+            numeroVoli--;
+            carteInVolo[numeroVoli] = null;
+            areeVolo[numeroVoli] = area;
+        }
+
+        public void rimuoviCarteInVolo() {
+            while (numeroVoli > 0) {
+                rimuoviCartaInVolo(carteInVolo[numeroVoli - 1]);
+            }
+        }
+
+        private int indiceVolo(GameModel.Card carta) {
+            for (int i = 0; i < numeroVoli; i++) {
+                if (carteInVolo[i] == carta) {
+                    return i;
+                }
+            }
+            return -1;
+        }
 
-        public void setCartaInVolo(GameModel.Card carta, Point posizione) {
-            this.cartaInVolo = carta;
-            this.posizioneVolo = posizione;
+        public void setSuggerimento(int mossa) {
+            this.suggerimento = mossa;
+            stratoValido = false;
         }
 
         public PannelloGioco() {
             setPreferredSize(new Dimension(900, 720));
             setBackground(VERDE_FELTRO);
+            for (int i = 0; i < areeVolo.length; i++) {
+                areeVolo[i] = new Rectangle();
+            }
         }
 
         public void setModel(GameModel modello) {
             this.modello = modello;
+            stratoValido = false;
+        }
+
+        /**
+         * Il tavolo è cambiato senza passare dal modello (es. sprite appena
+         * caricati): il prossimo drag ridisegna lo strato.
+         */
+        void invalidaStrato() {
+            stratoValido = false;
         }
 
+        /**
+         * Aggiorna lo stato del drag e ridisegna solo l'area lasciata dalle
+         * carte trascinate e quella che occupano ora: il costo di un frame
+         * dipende da quante carte si trascinano, non dal tavolo.
+         */
         public void setDragState(List<GameModel.Card> trascinate, Point inizio,
                 Point posizioneMouse, int origine, int indice) {
             this.carteTrascinate = trascinate;
@@ -428,6 +629,46 @@ public class GameView extends JFrame {
             this.posizioneMouse = posizioneMouse;
             this.colonnaOrigine = origine;
             this.indiceOrigine = indice;
+            boolean trascinamento = modello != null && !trascinate.isEmpty()
+                    && inizio != null && posizioneMouse != null;
+            if (!trascinamento) {
+                stratoValido = false; // il prossimo drag ridisegna lo strato
+            }
+            ridisegnaArea(areaTrascinamento, trascinamento,
+                    trascinamento ? xOrigine() + posizioneMouse.x - inizio.x : 0,
+                    trascinamento ? yOrigine() + posizioneMouse.y - inizio.y : 0,
+                    (trascinate.size() - 1) * OFFSET_PILA + ALTEZZA_CARTA);
+        }
+
+        /**
+         * Ridisegna la vecchia area e, se visibile, la nuova in (x, y) con
+         * l'altezza indicata; poi l'area ricorda la nuova posizione.
+         */
+        private void ridisegnaArea(Rectangle area, boolean visibile, int x, int y, int altezza) {
+            if (!area.isEmpty()) {
+                repaint(area);
+            }
+            if (visibile) {
+                area.setBounds(x - MARGINE_OMBRA, y - MARGINE_OMBRA,
+                        LARGHEZZA_CARTA + 2 * MARGINE_OMBRA, altezza + 2 * MARGINE_OMBRA);
+                repaint(area);
+            } else {
+                area.setBounds(0, 0, 0, 0);
+            }
+        }
+
+        // Posizione sul tavolo della prima carta trascinata
+        private int xOrigine() {
+            if (colonnaOrigine == -2) {
+                return LayoutTavolo.xCimaScarto(modello);
+            } else if (colonnaOrigine < -2) {
+                return LayoutTavolo.xPila(Moves.FONDAMENTA - (colonnaOrigine + 3));
+            }
+            return LayoutTavolo.xPila(Math.max(0, colonnaOrigine));
+        }
+
+        private int yOrigine() {
+            return colonnaOrigine >= 0 ? LayoutTavolo.yColonna(indiceOrigine) : LayoutTavolo.yPila(Moves.SCARTO);
         }
 
         @Override
@@ -439,66 +680,120 @@ public class GameView extends JFrame {
 
             Graphics2D g2d = (Graphics2D) g;
             g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            immaginiCarte.prepara(g2d.getDeviceConfiguration());
+
+            if (isTrascinamento()) {
+                // Durante il drag il tavolo non cambia: si copia lo strato
+                if (!stratoValido) {
+                    preparaStrato(g2d);
+                }
+                g2d.drawImage(strato, 0, 0, getWidth(), getHeight(), null);
+                disegnaTrascinate(g2d);
+            } else {
+                disegnaTavolo(g2d);
+            }
+
+            // ── Carte in volo (autocompletamento) ───────────────────────────────
+            for (int i = 0; i < numeroVoli; i++) {
+                // Ombra leggera
+                g2d.setColor(OMBRA_VOLO);
+                g2d.fillRoundRect(xVolo[i] + 4, yVolo[i] + 4, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
+                disegnaCarta(g2d, carteInVolo[i], xVolo[i], yVolo[i]);
+            }
+        }
+
+        private boolean isTrascinamento() {
+            return !carteTrascinate.isEmpty() && inizioDrag != null && posizioneMouse != null;
+        }
+
+        // ── Strato statico del drag ─────────────────────────────────────────
+        /**
+         * Disegna una volta il tavolo senza le carte trascinate in
+         * un'immagine fuori schermo, alla scala del dispositivo; l'immagine
+         * viene riusata finché la dimensione del pannello non cambia.
+         */
+        private void preparaStrato(Graphics2D destinazione) {
+            double scala = destinazione.getTransform().getScaleX();
+            int w = (int) Math.ceil(getWidth() * scala);
+            int h = (int) Math.ceil(getHeight() * scala);
+            if (strato == null || strato.getWidth() != w || strato.getHeight() != h) {
+                strato = destinazione.getDeviceConfiguration().createCompatibleImage(w, h, Transparency.OPAQUE);
+            }
+            Graphics2D g = strato.createGraphics();
+            g.scale(scala, scala);
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            disegnaTavolo(g);
+            g.dispose();
+            stratoValido = true;
+        }
 
+        // ── Tavolo ──────────────────────────────────────────────────────────
+        /**
+         * Pile e suggerimento, senza le carte trascinate.
+         */
+        private void disegnaTavolo(Graphics2D g2d) {
             List<GameModel.Card> stock = modello.getStockPile();
             List<GameModel.Card> scarto = modello.getWastePile();
             List<List<GameModel.Card>> fonds = modello.getFoundations();
             List<List<GameModel.Card>> tab = modello.getTableau();
+            boolean trascinamento = !carteTrascinate.isEmpty();
 
-            int xStock = SPAZIATURA_CARTE;
-            int xScarto = SPAZIATURA_CARTE + LARGHEZZA_CARTA + SPAZIATURA_CARTE;
+            int xStock = LayoutTavolo.xPila(Moves.STOCK);
+            int xScarto = LayoutTavolo.xPila(Moves.SCARTO);
 
             // Stock
             if (!stock.isEmpty()) {
                 disegnaRetro(g2d, xStock, SPAZIATURA_CARTE);
             } else {
-                disegnaSlotVuoto(g2d, xStock, SPAZIATURA_CARTE, "↻");
+                disegnaSlotVuoto(g2d, xStock, SPAZIATURA_CARTE, CacheImmaginiCarte.SLOT_STOCK);
             }
 
-            // Scarto (waste)
+            // Scarto (waste): si trascina solo la cima
             if (!scarto.isEmpty()) {
                 int carteVisibili = modello.getCarteVisibiliWaste();
                 int inizioIdx = scarto.size() - carteVisibili;
-                for (int i = 0; i < carteVisibili; i++) {
-                    GameModel.Card carta = scarto.get(inizioIdx + i);
-                    if (!carteTrascinate.contains(carta)) {
-                        disegnaCarta(g2d, carta, xScarto + i * 20, SPAZIATURA_CARTE);
-                    }
+                int ultima = trascinamento && colonnaOrigine == -2 ? carteVisibili - 1 : carteVisibili;
+                for (int i = 0; i < ultima; i++) {
+                    disegnaCarta(g2d, scarto.get(inizioIdx + i), LayoutTavolo.xScarto(i), SPAZIATURA_CARTE);
                 }
             } else {
-                disegnaSlotVuoto(g2d, xScarto, SPAZIATURA_CARTE, "");
+                disegnaSlotVuoto(g2d, xScarto, SPAZIATURA_CARTE, CacheImmaginiCarte.SLOT_SCARTO);
             }
 
             // Fondamenta
-            String[] simboliFondamenta = {"♥", "♦", "♣", "♠"};
             for (int i = 0; i < 4; i++) {
-                int xF = SPAZIATURA_CARTE + (3 + i) * (LARGHEZZA_CARTA + SPAZIATURA_CARTE);
+                int xF = LayoutTavolo.xPila(Moves.FONDAMENTA + i);
                 List<GameModel.Card> f = fonds.get(i);
-                if (f.isEmpty()) {
-                    disegnaSlotVuoto(g2d, xF, SPAZIATURA_CARTE, simboliFondamenta[i]);
+                // Le carte in volo sono già nel modello ma non ancora
+                // arrivate; quella trascinata lascia vedere la carta sotto
+                int indiceCima = f.size() - 1;
+                if (trascinamento && colonnaOrigine == -3 - i) {
+                    indiceCima--;
+                }
+                while (indiceCima >= 0 && indiceVolo(f.get(indiceCima)) >= 0) {
+                    indiceCima--;
+                }
+                if (indiceCima < 0) {
+                    disegnaSlotVuoto(g2d, xF, SPAZIATURA_CARTE, CacheImmaginiCarte.SLOT_FONDAMENTA + i);
                 } else {
-                    GameModel.Card cima = f.get(f.size() - 1);
-                    if (!carteTrascinate.contains(cima)) {
-                        disegnaCarta(g2d, cima, xF, SPAZIATURA_CARTE);
-                    }
+                    disegnaCarta(g2d, f.get(indiceCima), xF, SPAZIATURA_CARTE);
                 }
             }
 
-            // Tavolo (tableau)
+            // Tavolo (tableau): le carte trascinate sono la coda della colonna
             for (int col = 0; col < 7; col++) {
-                int xCol = SPAZIATURA_CARTE + col * (LARGHEZZA_CARTA + SPAZIATURA_CARTE);
+                int xCol = LayoutTavolo.xPila(col);
                 List<GameModel.Card> pila = tab.get(col);
                 if (pila.isEmpty()) {
-                    disegnaSlotVuoto(g2d, xCol, Y_TAVOLO, "K");
+                    disegnaSlotVuoto(g2d, xCol, Y_TAVOLO, CacheImmaginiCarte.SLOT_COLONNA);
                 } else {
-                    for (int i = 0; i < pila.size(); i++) {
-                        GameModel.Card carta = pila.get(i);
-                        if (carteTrascinate.contains(carta)) {
-                            continue;
-                        }
-                        int yC = Y_TAVOLO + i * OFFSET_PILA;
-                        if (carta.isFaceUp()) {
-                            disegnaCarta(g2d, carta, xCol, yC);
+                    int fine = trascinamento && colonnaOrigine == col ? indiceOrigine : pila.size();
+                    for (int i = 0; i < fine; i++) {
+                        int yC = LayoutTavolo.yColonna(i);
+                        if (modello.isFaceUp(col, i)) {
+                            disegnaCarta(g2d, pila.get(i), xCol, yC);
                         } else {
                             disegnaRetro(g2d, xCol, yC);
                         }
@@ -506,101 +801,96 @@ public class GameView extends JFrame {
                 }
             }
 
-            // Ombra + carte trascinate
-            if (!carteTrascinate.isEmpty() && inizioDrag != null && posizioneMouse != null) {
-                int offX = posizioneMouse.x - inizioDrag.x;
-                int offY = posizioneMouse.y - inizioDrag.y;
-
-                for (int i = 0; i < carteTrascinate.size(); i++) {
-                    int x = 0, y = 0;
-                    if (colonnaOrigine == -2) {
-                        int visibili = modello.getCarteVisibiliWaste();
-                        x = xScarto + (visibili - 1) * 20;
-                        y = SPAZIATURA_CARTE;
-                    } else if (colonnaOrigine < -2) {
-                        int fi = -(colonnaOrigine + 3);
-                        x = SPAZIATURA_CARTE + (3 + fi) * (LARGHEZZA_CARTA + SPAZIATURA_CARTE);
-                        y = SPAZIATURA_CARTE;
-                    } else if (colonnaOrigine >= 0) {
-                        x = SPAZIATURA_CARTE + colonnaOrigine * (LARGHEZZA_CARTA + SPAZIATURA_CARTE);
-                        y = Y_TAVOLO + indiceOrigine * OFFSET_PILA + i * OFFSET_PILA;
-                    }
-                    g2d.setColor(new Color(0, 0, 0, 100));
-                    g2d.fillRoundRect(x + offX + 5, y + offY + 5, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
-                    g2d.setColor(new Color(0, 0, 0, 50));
-                    g2d.fillRoundRect(x + offX + 8, y + offY + 8, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
-                    disegnaCarta(g2d, carteTrascinate.get(i), x + offX, y + offY);
-                }
+            if (suggerimento >= 0) {
+                disegnaSuggerimento(g2d, suggerimento);
             }
-            // ── Carta in volo (autocompletamento) ───────────────────────────────
-            if (cartaInVolo != null && posizioneVolo != null) {
-                // Ombra leggera
-                g2d.setColor(new Color(0, 0, 0, 80));
-                g2d.fillRoundRect(posizioneVolo.x + 4, posizioneVolo.y + 4, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
-                disegnaCarta(g2d, cartaInVolo, posizioneVolo.x, posizioneVolo.y);
+        }
+
+        // Ombra + carte trascinate
+        private void disegnaTrascinate(Graphics2D g2d) {
+            int offX = posizioneMouse.x - inizioDrag.x;
+            int offY = posizioneMouse.y - inizioDrag.y;
+
+            for (int i = 0; i < carteTrascinate.size(); i++) {
+                int x = xOrigine();
+                int y = yOrigine() + i * OFFSET_PILA;
+                g2d.setColor(OMBRA_TRASCINATA);
+                g2d.fillRoundRect(x + offX + 5, y + offY + 5, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
+                g2d.setColor(OMBRA_TRASCINATA_LONTANA);
+                g2d.fillRoundRect(x + offX + 8, y + offY + 8, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
+                disegnaCarta(g2d, carteTrascinate.get(i), x + offX, y + offY);
             }
         }
+
+        // ── Evidenziazione del suggerimento ─────────────────────────────────
+        private void disegnaSuggerimento(Graphics2D g2d, int mossa) {
+            int sorgente = Moves.source(mossa);
+            int destinazione = Moves.destination(mossa);
+            g2d.setStroke(TRATTO_SUGGERIMENTO);
+
+            // Pescata e riciclo: basta indicare il mazzo
+            if (sorgente == Moves.STOCK || destinazione == Moves.STOCK) {
+                g2d.setColor(ORO);
+                g2d.drawRoundRect(LayoutTavolo.xPila(Moves.STOCK) - 3, SPAZIATURA_CARTE - 3,
+                        LARGHEZZA_CARTA + 6, ALTEZZA_CARTA + 6, 14, 14);
+                return;
+            }
+
+            g2d.setColor(ORO);
+            if (sorgente == Moves.SCARTO) {
+                int x = LayoutTavolo.xCimaScarto(modello);
+                g2d.drawRoundRect(x - 3, SPAZIATURA_CARTE - 3, LARGHEZZA_CARTA + 6, ALTEZZA_CARTA + 6, 14, 14);
+            } else if (Moves.isFoundation(sorgente)) {
+                int x = LayoutTavolo.xPila(sorgente);
+                g2d.drawRoundRect(x - 3, SPAZIATURA_CARTE - 3, LARGHEZZA_CARTA + 6, ALTEZZA_CARTA + 6, 14, 14);
+            } else {
+                int x = LayoutTavolo.xPila(sorgente);
+                int n = Moves.count(mossa);
+                int y = LayoutTavolo.yColonna(modello.getTableau().get(sorgente).size() - n);
+                g2d.drawRoundRect(x - 3, y - 3, LARGHEZZA_CARTA + 6,
+                        (n - 1) * OFFSET_PILA + ALTEZZA_CARTA + 6, 14, 14);
+            }
+
+            // Destinazione tratteggiata
+            g2d.setStroke(TRATTO_DESTINAZIONE);
+            if (Moves.isFoundation(destinazione)) {
+                int x = LayoutTavolo.xPila(destinazione);
+                g2d.drawRoundRect(x - 3, SPAZIATURA_CARTE - 3, LARGHEZZA_CARTA + 6, ALTEZZA_CARTA + 6, 14, 14);
+            } else {
+                int x = LayoutTavolo.xPila(destinazione);
+                int y = LayoutTavolo.yColonna(Math.max(0, modello.getTableau().get(destinazione).size() - 1));
+                g2d.drawRoundRect(x - 3, y - 3, LARGHEZZA_CARTA + 6, ALTEZZA_CARTA + 6, 14, 14);
+            }
+        }
+
         private void disegnaCarta(Graphics2D g2d, GameModel.Card carta, int x, int y) {
-            String chiave = carta.getRank().toString() + carta.getSuit().toString();
-            BufferedImage img = immaginiCarte.get(chiave);
+            BufferedImage img = immaginiCarte.getFaccia(carta.getCode());
             if (img != null) {
-                g2d.setColor(new Color(200, 200, 200));
-                g2d.fillRoundRect(x - 1, y - 1, LARGHEZZA_CARTA + 2, ALTEZZA_CARTA + 2, 12, 12);
-                g2d.drawImage(img, x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, null);
+                // Sprite già in scala e con il bordo: una copia di pixel
+                int bordo = CacheImmaginiCarte.BORDO;
+                g2d.drawImage(img, x - bordo, y - bordo,
+                        LARGHEZZA_CARTA + 2 * bordo, ALTEZZA_CARTA + 2 * bordo, null);
             } else {
                 g2d.setColor(Color.WHITE);
                 g2d.fillRoundRect(x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, 10, 10);
-                g2d.setColor(new Color(200, 200, 200));
-                g2d.setStroke(new BasicStroke(2));
+                g2d.setColor(BORDO_CARTA);
+                g2d.setStroke(TRATTO_CARTA);
                 g2d.drawRoundRect(x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, 10, 10);
                 boolean rosso = carta.getSuit() == GameModel.Card.Suit.HEARTS
                         || carta.getSuit() == GameModel.Card.Suit.DIAMONDS;
-                g2d.setColor(rosso ? new Color(200, 0, 0) : Color.BLACK);
-                g2d.setFont(new Font("Arial", Font.BOLD, 24));
+                g2d.setColor(rosso ? ROSSO_CARTA : Color.BLACK);
+                g2d.setFont(FONT_CARTA);
                 g2d.drawString(carta.getRank().toString(), x + 10, y + 40);
                 g2d.drawString(carta.getSuit().toString(), x + 10, y + 70);
             }
         }
 
         private void disegnaRetro(Graphics2D g2d, int x, int y) {
-            if (immagineRetro != null) {
-                g2d.drawImage(immagineRetro, x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, null);
-            } else {
-                GradientPaint gradiente = new GradientPaint(
-                        x, y, new Color(20, 60, 140),
-                        x + LARGHEZZA_CARTA, y + ALTEZZA_CARTA, new Color(40, 90, 180));
-                g2d.setPaint(gradiente);
-                g2d.fillRoundRect(x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
-                g2d.setColor(ORO_SCURO);
-                g2d.setStroke(new BasicStroke(3));
-                g2d.drawRoundRect(x + 3, y + 3, LARGHEZZA_CARTA - 6, ALTEZZA_CARTA - 6, 10, 10);
-                g2d.setColor(new Color(255, 255, 255, 40));
-                for (int i = 0; i < 4; i++) {
-                    for (int j = 0; j < 5; j++) {
-                        g2d.fillOval(x + 18 + i * 22, y + 18 + j * 28, 10, 10);
-                    }
-                }
-                g2d.setColor(ORO);
-                int cx = x + LARGHEZZA_CARTA / 2, cy = y + ALTEZZA_CARTA / 2;
-                g2d.fillPolygon(new int[]{cx, cx + 18, cx, cx - 18}, new int[]{cy - 25, cy, cy + 25, cy}, 4);
-            }
+            g2d.drawImage(immaginiCarte.getRetro(), x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, null);
         }
 
-        private void disegnaSlotVuoto(Graphics2D g2d, int x, int y, String simbolo) {
-            g2d.setColor(VERDE_SCURO);
-            g2d.fillRoundRect(x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, 12, 12);
-            g2d.setColor(VERDE_CHIARO);
-            g2d.setStroke(new BasicStroke(2.5f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
-                    0, new float[]{8, 6}, 0));
-            g2d.drawRoundRect(x + 4, y + 4, LARGHEZZA_CARTA - 8, ALTEZZA_CARTA - 8, 10, 10);
-            if (!simbolo.isEmpty()) {
-                g2d.setColor(new Color(255, 255, 255, 80));
-                g2d.setFont(new Font("Arial", Font.BOLD, 48));
-                FontMetrics fm = g2d.getFontMetrics();
-                g2d.drawString(simbolo,
-                        x + (LARGHEZZA_CARTA - fm.stringWidth(simbolo)) / 2,
-                        y + ((ALTEZZA_CARTA - fm.getHeight()) / 2) + fm.getAscent());
-            }
+        private void disegnaSlotVuoto(Graphics2D g2d, int x, int y, int slot) {
+            g2d.drawImage(immaginiCarte.getSlot(slot), x, y, LARGHEZZA_CARTA, ALTEZZA_CARTA, null);
         }
     }
 }
\ No newline at end of file
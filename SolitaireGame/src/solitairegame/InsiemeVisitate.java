@@ -0,0 +1,12 @@
+package solitairegame;
+
+/**
+ * Insieme delle chiavi di posizione già visitate da una ricerca.
+ */
+interface InsiemeVisitate {
+
+    /**
+     * Aggiunge la chiave; ritorna false se era già presente.
+     */
+    boolean aggiungi(long chiave);
+}
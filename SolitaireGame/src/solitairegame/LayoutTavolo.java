@@ -0,0 +1,179 @@
+package solitairegame;
+
+import static solitairegame.GameView.ALTEZZA_CARTA;
+import static solitairegame.GameView.LARGHEZZA_CARTA;
+import static solitairegame.GameView.OFFSET_PILA;
+import static solitairegame.GameView.SPAZIATURA_CARTE;
+import static solitairegame.GameView.Y_TAVOLO;
+
+/**
+ * LAYOUT TAVOLO - Geometria del tavolo condivisa da vista e controller:
+ * dove si disegna ogni carta e quale carta o pila sta sotto un punto.
+ *
+ * Le pile usano la numerazione di {@link Moves}. Le posizioni sono su una
+ * griglia di colonne larghe LARGHEZZA_CARTA + SPAZIATURA_CARTE: riga in
+ * alto stock, scarto, -, fondamenta 0-3; sotto le 7 colonne del tavolo.
+ * Il colpo in un punto si ricava con una divisione per la colonna della
+ * griglia e una per la carta nella pila, quindi costa uguale con pile di
+ * qualunque lunghezza.
+ *
+ * Un colpo è codificato in un int: bit 0-3 pila, bit 4+ indice della
+ * carta nella pila; -1 = niente.
+ */
+final class LayoutTavolo {
+
+    // Ventaglio delle carte visibili dello scarto
+    static final int OFFSET_SCARTO = 20;
+
+    private static final int PASSO = LARGHEZZA_CARTA + SPAZIATURA_CARTE;
+    private static final int PRIMA_FONDAMENTA = 3; // colonna della griglia
+
+    private LayoutTavolo() {
+    }
+
+    static int pila(int colpo) {
+        return colpo & 0xF;
+    }
+
+    static int indice(int colpo) {
+        return colpo >>> 4;
+    }
+
+    private static int colpo(int pila, int indice) {
+        return pila | (indice << 4);
+    }
+
+    // ── Posizioni ────────────────────────────────────────────────────────────
+    /**
+     * x della pila; per lo scarto è la prima carta del ventaglio.
+     */
+    static int xPila(int pila) {
+        if (Moves.isTableau(pila)) {
+            return SPAZIATURA_CARTE + pila * PASSO;
+        }
+        if (Moves.isFoundation(pila)) {
+            return SPAZIATURA_CARTE + (PRIMA_FONDAMENTA + pila - Moves.FONDAMENTA) * PASSO;
+        }
+        return pila == Moves.SCARTO ? SPAZIATURA_CARTE + PASSO : SPAZIATURA_CARTE;
+    }
+
+    static int yPila(int pila) {
+        return Moves.isTableau(pila) ? Y_TAVOLO : SPAZIATURA_CARTE;
+    }
+
+    /**
+     * x della carta visibile numero i (da 0) del ventaglio dello scarto.
+     */
+    static int xScarto(int visibile) {
+        return xPila(Moves.SCARTO) + visibile * OFFSET_SCARTO;
+    }
+
+    /**
+     * x della cima dello scarto, l'unica carta che si può prendere.
+     */
+    static int xCimaScarto(GameModel modello) {
+        return xScarto(Math.max(0, modello.getCarteVisibiliWaste() - 1));
+    }
+
+    /**
+     * y della carta all'indice indicato in una colonna del tavolo.
+     */
+    static int yColonna(int indice) {
+        return Y_TAVOLO + indice * OFFSET_PILA;
+    }
+
+    /**
+     * Posizione della carta colpita (vedi {@link #cartaInPunto}).
+     */
+    static int xCarta(int colpo, GameModel modello) {
+        int pila = pila(colpo);
+        if (pila == Moves.SCARTO) {
+            int primaVisibile = modello.getWastePile().size() - modello.getCarteVisibiliWaste();
+            return xScarto(Math.max(0, indice(colpo) - primaVisibile));
+        }
+        return xPila(pila);
+    }
+
+    static int yCarta(int colpo) {
+        int pila = pila(colpo);
+        return Moves.isTableau(pila) ? yColonna(indice(colpo)) : yPila(pila);
+    }
+
+    /**
+     * Altezza occupata da una colonna di n carte (una carta se vuota).
+     */
+    static int altezzaColonna(int carte) {
+        return Math.max(0, carte - 1) * OFFSET_PILA + ALTEZZA_CARTA;
+    }
+
+    // ── Colpi ────────────────────────────────────────────────────────────────
+    /**
+     * Carta visibile sotto il punto: la cima di stock, scarto e fondamenta
+     * oppure una carta delle colonne (coperta o scoperta); -1 se sotto il
+     * punto non c'è una carta.
+     */
+    static int cartaInPunto(int x, int y, GameModel modello) {
+        int pila = pilaInPunto(x, y, modello);
+        if (pila < 0) {
+            return -1;
+        }
+        if (!Moves.isTableau(pila)) {
+            int carte = carteInPila(pila, modello);
+            if (carte == 0 || pila == Moves.SCARTO && x < xCimaScarto(modello)) {
+                return -1;
+            }
+            return colpo(pila, carte - 1);
+        }
+        int carte = modello.getTableau().get(pila).size();
+        if (carte == 0 || y > Y_TAVOLO + altezzaColonna(carte)) {
+            return -1;
+        }
+        // Ogni carta mostra una striscia di OFFSET_PILA, l'ultima è intera
+        return colpo(pila, Math.min((y - Y_TAVOLO) / OFFSET_PILA, carte - 1));
+    }
+
+    /**
+     * Pila sotto il punto, anche vuota: nella riga in alto lo spazio della
+     * pila, nel tavolo la colonna fino al fondo di una carta appoggiata
+     * sull'ultima (dove si rilascia); -1 se il punto è fuori da ogni pila.
+     */
+    static int pilaInPunto(int x, int y, GameModel modello) {
+        if (x < SPAZIATURA_CARTE) {
+            return -1;
+        }
+        int colonna = (x - SPAZIATURA_CARTE) / PASSO;
+        boolean dentro = (x - SPAZIATURA_CARTE) % PASSO <= LARGHEZZA_CARTA;
+
+        if (y >= Y_TAVOLO) {
+            if (colonna >= 7 || !dentro) {
+                return -1;
+            }
+            int carte = modello.getTableau().get(colonna).size();
+            return y <= Y_TAVOLO + altezzaColonna(carte + 1) ? colonna : -1;
+        }
+        if (y < SPAZIATURA_CARTE || y > SPAZIATURA_CARTE + ALTEZZA_CARTA) {
+            return -1;
+        }
+        // Il ventaglio dello scarto sborda nella colonna vuota accanto
+        if (x >= xPila(Moves.SCARTO) && x <= xCimaScarto(modello) + LARGHEZZA_CARTA) {
+            return Moves.SCARTO;
+        }
+        if (!dentro) {
+            return -1;
+        }
+        if (colonna == 0) {
+            return Moves.STOCK;
+        }
+        if (colonna >= PRIMA_FONDAMENTA && colonna < PRIMA_FONDAMENTA + 4) {
+            return Moves.FONDAMENTA + colonna - PRIMA_FONDAMENTA;
+        }
+        return colonna == 1 ? Moves.SCARTO : -1;
+    }
+
+    private static int carteInPila(int pila, GameModel modello) {
+        if (Moves.isFoundation(pila)) {
+            return modello.getFoundations().get(pila - Moves.FONDAMENTA).size();
+        }
+        return pila == Moves.SCARTO ? modello.getWastePile().size() : modello.getStockPile().size();
+    }
+}
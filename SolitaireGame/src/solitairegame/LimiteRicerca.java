@@ -0,0 +1,57 @@
+package solitairegame;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Budget di nodi e di tempo condiviso dai thread di una stessa ricerca,
+ * con arresto cooperativo: chi trova la soluzione chiama {@link #ferma()}
+ * e gli altri se ne accorgono al successivo controllo.
+ */
+final class LimiteRicerca {
+
+    private final long maxNodi;
+    private final long scadenzaNano;
+    private final AtomicLong nodi = new AtomicLong();
+    private volatile boolean fermata = false;
+    private volatile boolean esaurito = false;
+
+    LimiteRicerca(long maxNodi, long maxMillisecondi) {
+        this.maxNodi = maxNodi;
+        this.scadenzaNano = System.nanoTime() + maxMillisecondi * 1_000_000L;
+    }
+
+    /**
+     * Registra un blocco di nodi esplorati. Ritorna false se la ricerca deve
+     * fermarsi (budget finito o arresto richiesto).
+     */
+    boolean consuma(long blocco) {
+        if (nodi.addAndGet(blocco) >= maxNodi || System.nanoTime() > scadenzaNano) {
+            esaurito = true;
+            fermata = true;
+        }
+        return !fermata;
+    }
+
+    /**
+     * Conteggia nodi senza controllare il budget (fine di un ramo).
+     */
+    void registra(long blocco) {
+        nodi.addAndGet(blocco);
+    }
+
+    void ferma() {
+        fermata = true;
+    }
+
+    boolean isFermata() {
+        return fermata;
+    }
+
+    boolean isEsaurito() {
+        return esaurito;
+    }
+
+    long getNodi() {
+        return nodi.get();
+    }
+}
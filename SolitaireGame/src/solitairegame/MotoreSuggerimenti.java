@@ -0,0 +1,96 @@
+package solitairegame;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.IntConsumer;
+import javax.swing.SwingUtilities;
+
+/**
+ * SUGGERIMENTI - Cerca la mossa migliore su un thread in background, così
+ * l'Event Dispatch Thread resta libero per disegnare e trascinare.
+ *
+ * La ricerca lavora su una fotografia {@link BoardState} presa sull'EDT e
+ * usa il {@link Solver} con un budget di tempo: se trova una linea vincente
+ * suggerisce la sua prima mossa, altrimenti la mossa euristica calcolata al
+ * momento della richiesta. Il risultato torna sull'EDT solo se nel frattempo
+ * la richiesta non è stata annullata.
+ *
+ * Tutti i metodi vanno chiamati dall'EDT.
+ */
+final class MotoreSuggerimenti {
+
+    public static final long MILLIS_SUGGERIMENTO = 1_500;
+    public static final long NODI_SUGGERIMENTO = 4_000_000;
+
+    private final ExecutorService esecutore = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "suggerimenti");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Ricerca in corso (null se nessuna) e numero della richiesta valida
+    private LimiteRicerca limite = null;
+    private int generazione = 0;
+
+    /**
+     * Avvia la ricerca per la posizione del modello, annullando quella
+     * precedente. esito riceve sull'EDT la mossa codificata con
+     * {@link Moves}, oppure -1 se non esiste nessuna mossa.
+     */
+    void cerca(GameModel modello, IntConsumer esito) {
+        annulla();
+        BoardState stato = modello.getBoardState();
+        GameModel.Difficulty difficolta = modello.getDifficulty();
+        int riserva = mossaEuristica(modello);
+
+        int richiesta = generazione;
+        LimiteRicerca limiteRicerca = new LimiteRicerca(NODI_SUGGERIMENTO, MILLIS_SUGGERIMENTO);
+        limite = limiteRicerca;
+        esecutore.execute(() -> {
+            Solver.Risultato risultato = new Solver().risolvi(stato, difficolta, limiteRicerca);
+            int[] mosse = risultato.getMosse();
+            int mossa = mosse.length > 0 ? mosse[0] : riserva;
+            SwingUtilities.invokeLater(() -> {
+                if (richiesta == generazione) {
+                    limite = null;
+                    esito.accept(mossa);
+                }
+            });
+        });
+    }
+
+    boolean isInCorso() {
+        return limite != null;
+    }
+
+    /**
+     * Ferma la ricerca in corso; il suo risultato verrà scartato.
+     */
+    void annulla() {
+        generazione++;
+        if (limite != null) {
+            limite.ferma();
+            limite = null;
+        }
+    }
+
+    /**
+     * Miglior mossa secondo la politica FONDAMENTA_PRIMA del simulatore,
+     * -1 se non ce ne sono.
+     */
+    private static int mossaEuristica(GameModel modello) {
+        int[] candidate = new int[GameModel.MAX_MOSSE_LEGALI];
+        int n = SimulationRunner.generaCandidate(modello, candidate);
+        int migliore = -1;
+        int punteggioMigliore = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            int p = SimulationRunner.Politica.FONDAMENTA_PRIMA.punteggio(candidate[i]);
+            if (p > punteggioMigliore) {
+                punteggioMigliore = p;
+                migliore = candidate[i] & ~Moves.SCOPERTA;
+            }
+        }
+        return migliore;
+    }
+}
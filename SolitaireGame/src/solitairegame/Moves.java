@@ -0,0 +1,80 @@
+package solitairegame;
+
+/**
+ * MOSSE - Codifica di una mossa in un singolo int, condivisa da solver,
+ * strumenti di analisi e modello.
+ *
+ * Bit 0-3 pila sorgente, bit 4-7 pila destinazione, bit 8-12 numero di carte
+ * spostate, bit 13 = la mossa ha scoperto la carta sottostante nella colonna
+ * sorgente (serve per poterla annullare), bit 14 = la mossa non incrementa il
+ * contatore delle mosse (riciclo dello scarto, auto-completamento), bit 15 =
+ * il comando annulla la mossa descritta dagli altri bit (un undo nel replay).
+ *
+ * Pile: 0-6 colonne del tavolo, 7 scarto, 8-11 fondamenta, 12 stock.
+ * La pescata è STOCK → SCARTO, il riciclo dello scarto è SCARTO → STOCK.
+ */
+public final class Moves {
+
+    public static final int TAVOLO = 0;
+    public static final int SCARTO = 7;
+    public static final int FONDAMENTA = 8;
+    public static final int STOCK = 12;
+
+    public static final int SCOPERTA = 1 << 13;
+    public static final int NON_CONTATA = 1 << 14;
+    public static final int INVERSA = 1 << 15;
+
+    private Moves() {
+    }
+
+    public static int of(int sorgente, int destinazione, int numeroCarte) {
+        return sorgente | (destinazione << 4) | (numeroCarte << 8);
+    }
+
+    public static int source(int mossa) {
+        return mossa & 0xF;
+    }
+
+    public static int destination(int mossa) {
+        return (mossa >>> 4) & 0xF;
+    }
+
+    public static int count(int mossa) {
+        return (mossa >>> 8) & 0x1F;
+    }
+
+    public static boolean flipped(int mossa) {
+        return (mossa & SCOPERTA) != 0;
+    }
+
+    public static boolean isTableau(int pila) {
+        return pila < SCARTO;
+    }
+
+    public static boolean isFoundation(int pila) {
+        return pila >= FONDAMENTA && pila < STOCK;
+    }
+
+    public static boolean isDraw(int mossa) {
+        return source(mossa) == STOCK;
+    }
+
+    public static boolean isRecycle(int mossa) {
+        return destination(mossa) == STOCK;
+    }
+
+    public static String toString(int mossa) {
+        return nomePila(source(mossa)) + " -> " + nomePila(destination(mossa))
+                + " (" + count(mossa) + ")";
+    }
+
+    private static String nomePila(int pila) {
+        if (isTableau(pila)) {
+            return "colonna " + (pila + 1);
+        }
+        if (isFoundation(pila)) {
+            return "fondamenta " + (pila - FONDAMENTA + 1);
+        }
+        return pila == SCARTO ? "scarto" : "stock";
+    }
+}
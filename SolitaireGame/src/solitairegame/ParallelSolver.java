@@ -0,0 +1,192 @@
+package solitairegame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * SOLVER PARALLELO - Stessa ricerca di {@link Solver} distribuita su più core
+ * con un {@link ForkJoinPool} a work-stealing.
+ *
+ * Fino a una profondità di divisione ogni mossa diventa un sotto-task; oltre
+ * quella profondità ogni task esegue la ricerca sequenziale di
+ * {@link Solver#esplora}. Tutti i task condividono un'unica
+ * {@link TabellaConcorrente} delle posizioni visitate e un unico
+ * {@link LimiteRicerca}: il primo che trova la vittoria ferma gli altri.
+ *
+ * La tabella è dimensionata sul budget di nodi (con un tetto) e riusata da
+ * una smazzata all'altra: ogni istanza risolve una smazzata alla volta.
+ *
+ * Il main misura lo speedup rispetto al solver sequenziale da 1 a N thread.
+ */
+public class ParallelSolver {
+
+    public static final int PROFONDITA_DIVISIONE = 3;
+
+    // Tetto della tabella delle visitate: 4M slot, 32 MB
+    private static final int MAX_SLOT = 1 << 22;
+
+    private final int thread;
+    private final long maxNodi;
+    private final long maxMillisecondi;
+    private TabellaConcorrente visitate = null; // creata alla prima ricerca
+
+    public ParallelSolver(int thread) {
+        this(thread, Solver.NODI_PREDEFINITI, Solver.MILLIS_PREDEFINITI);
+    }
+
+    public ParallelSolver(int thread, long maxNodi, long maxMillisecondi) {
+        this.thread = thread;
+        this.maxNodi = maxNodi;
+        this.maxMillisecondi = maxMillisecondi;
+    }
+
+    public Solver.Risultato risolvi(GameModel modello) {
+        return risolvi(modello.getBoardState(), modello.getDifficulty());
+    }
+
+    public synchronized Solver.Risultato risolvi(BoardState stato, GameModel.Difficulty difficolta) {
+        long inizio = System.nanoTime();
+        int carteDaPescare = difficolta == GameModel.Difficulty.FACILE ? 1 : 3;
+        TavoloRicerca tavolo = new TavoloRicerca(stato, carteDaPescare);
+
+        LimiteRicerca limite = new LimiteRicerca(maxNodi, maxMillisecondi);
+        if (tavolo.vinta()) {
+            return Solver.risultato(new int[0], limite, inizio);
+        }
+        // Due slot per nodo del budget, con un tetto per non occupare troppa memoria
+        if (visitate == null) {
+            visitate = new TabellaConcorrente((int) Math.min(maxNodi * 2, MAX_SLOT));
+        } else {
+            visitate.svuota();
+        }
+        visitate.aggiungi(tavolo.chiave());
+
+        ForkJoinPool pool = new ForkJoinPool(thread);
+        try {
+            int[] soluzione = pool.invoke(new Ramo(tavolo, 0, visitate, limite));
+            return Solver.risultato(soluzione, limite, inizio);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ── Task di ricerca ──────────────────────────────────────────────────────
+    private static class Ramo extends RecursiveTask<int[]> {
+
+        private final TavoloRicerca tavolo;
+        private final int profondita;
+        private final InsiemeVisitate visitate;
+        private final LimiteRicerca limite;
+
+        Ramo(TavoloRicerca tavolo, int profondita, InsiemeVisitate visitate, LimiteRicerca limite) {
+            this.tavolo = tavolo;
+            this.profondita = profondita;
+            this.visitate = visitate;
+            this.limite = limite;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (limite.isFermata()) {
+                return null;
+            }
+            if (profondita >= PROFONDITA_DIVISIONE) {
+                int[] soluzione = Solver.esplora(tavolo, visitate, limite);
+                if (soluzione != null) {
+                    limite.ferma();
+                }
+                return soluzione;
+            }
+
+            int[] mosse = new int[256];
+            int n = tavolo.generaMosse(mosse, 0);
+            List<Ramo> figli = new ArrayList<>(n);
+            List<Integer> mosseFigli = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                TavoloRicerca copia = new TavoloRicerca(tavolo);
+                int applicata = copia.applica(mosse[i]) & ~Moves.SCOPERTA;
+                if (!visitate.aggiungi(copia.chiave())) {
+                    continue;
+                }
+                limite.registra(1);
+                if (copia.vinta()) {
+                    limite.ferma();
+                    return new int[]{applicata};
+                }
+                figli.add(new Ramo(copia, profondita + 1, visitate, limite));
+                mosseFigli.add(applicata);
+            }
+
+            // Il primo figlio (la mossa più promettente) resta su questo thread
+            for (int i = 1; i < figli.size(); i++) {
+                figli.get(i).fork();
+            }
+            int[] trovata = null;
+            int indiceTrovata = -1;
+            for (int i = 0; i < figli.size(); i++) {
+                int[] risultato = i == 0 ? figli.get(0).compute() : figli.get(i).join();
+                if (trovata == null && risultato != null) {
+                    trovata = risultato;
+                    indiceTrovata = i;
+                }
+            }
+            if (trovata == null) {
+                return null;
+            }
+
+            int[] soluzione = new int[trovata.length + 1];
+            soluzione[0] = mosseFigli.get(indiceTrovata);
+            System.arraycopy(trovata, 0, soluzione, 1, trovata.length);
+            return soluzione;
+        }
+    }
+
+    // ── Misura dello speedup ─────────────────────────────────────────────────
+    /**
+     * Uso: ParallelSolver [numeroPartite] [FACILE|DIFFICILE] [maxThread]
+     */
+    public static void main(String[] args) {
+        int partite = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        GameModel.Difficulty difficolta = args.length > 1
+                ? GameModel.Difficulty.valueOf(args[1]) : GameModel.Difficulty.FACILE;
+        int maxThread = args.length > 2
+                ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        // Partite numerate 1..N: ogni esecuzione misura le stesse smazzate
+        BoardState[] smazzate = new BoardState[partite];
+        for (int i = 0; i < partite; i++) {
+            smazzate[i] = BoardState.deal(i + 1);
+        }
+
+        // Riscaldamento JIT
+        for (BoardState s : smazzate) {
+            new Solver().risolvi(s, difficolta);
+        }
+
+        long inizio = System.nanoTime();
+        int vinteSequenziale = 0;
+        for (BoardState s : smazzate) {
+            if (new Solver().risolvi(s, difficolta).isWinnable()) {
+                vinteSequenziale++;
+            }
+        }
+        double msSequenziale = (System.nanoTime() - inizio) / 1e6;
+        System.out.printf("%-12s %10s %8s %8s%n", "thread", "ms", "vinte", "speedup");
+        System.out.printf("%-12s %10.1f %8d %8s%n", "sequenziale", msSequenziale, vinteSequenziale, "1.00");
+
+        for (int t = 1; t <= maxThread; t++) {
+            ParallelSolver solver = new ParallelSolver(t);
+            inizio = System.nanoTime();
+            int vinte = 0;
+            for (BoardState s : smazzate) {
+                if (solver.risolvi(s, difficolta).isWinnable()) {
+                    vinte++;
+                }
+            }
+            double ms = (System.nanoTime() - inizio) / 1e6;
+            System.out.printf("%-12d %10.1f %8d %8.2f%n", t, ms, vinte, msSequenziale / ms);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package solitairegame;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * REGISTRAZIONE PARTITA - Replay compatto di una partita: la smazzata più un
+ * byte per ogni mossa giocata, annullata o ripetuta.
+ *
+ * Eventi:
+ * <pre>
+ * sorgente << 4 | destinazione    mossa (pile di {@link Moves})
+ * 0xD0 + fondamenta * 8 + colonna  mossa dell'auto-completamento
+ * 0xFD + int                       salto della timeline alla mossa indicata
+ * 0xFE                             ripeti
+ * 0xFF                             annulla
+ * </pre>
+ * Il numero di carte non viene salvato: pescata e riciclo dipendono dallo
+ * stock, e tra due colonne una sola carta della sequenza scoperta può andare
+ * sulla destinazione. {@link GameModel#caricaRegistrazione} ricostruisce i
+ * comandi completi rigiocando gli eventi una volta sola.
+ *
+ * Il GameModel registra da solo la partita in corso e il replay viene
+ * salvato insieme alla partita ({@link SalvataggioPartita}).
+ */
+public final class RegistrazionePartita {
+
+    static final int AUTOMATICA = 0xD0;
+    static final int SALTO = 0xFD;
+    static final int RIPETI = 0xFE;
+    static final int ANNULLA = 0xFF;
+
+    private final GameModel.Difficulty difficolta;
+    private final long numeroPartita;
+    private final BoardState inizio; // null = smazzata del numero di partita
+    private byte[] eventi;
+    private int lunghezza;
+    private int ultimoSalto = -1; // inizio dell'ultimo salto registrato
+
+    RegistrazionePartita(GameModel.Difficulty difficolta, long numeroPartita, BoardState inizio) {
+        this(difficolta, numeroPartita, inizio, new byte[256], 0);
+    }
+
+    private RegistrazionePartita(GameModel.Difficulty difficolta, long numeroPartita, BoardState inizio,
+            byte[] eventi, int lunghezza) {
+        this.difficolta = difficolta;
+        this.numeroPartita = numeroPartita;
+        this.inizio = inizio;
+        this.eventi = eventi;
+        this.lunghezza = lunghezza;
+    }
+
+    public GameModel.Difficulty getDifficulty() {
+        return difficolta;
+    }
+
+    public long getDealSeed() {
+        return numeroPartita;
+    }
+
+    BoardState getInizio() {
+        return inizio;
+    }
+
+    /**
+     * Numero di byte di eventi registrati.
+     */
+    public int size() {
+        return lunghezza;
+    }
+
+    int evento(int indice) {
+        return eventi[indice] & 0xFF;
+    }
+
+    /**
+     * Destinazione del salto che inizia all'indice indicato.
+     */
+    int salto(int indice) {
+        return (evento(indice + 1) << 24) | (evento(indice + 2) << 16)
+                | (evento(indice + 3) << 8) | evento(indice + 4);
+    }
+
+    // ── Registrazione ────────────────────────────────────────────────────────
+    /**
+     * Evento di un comando del registro delle mosse.
+     */
+    static int eventoDi(int comando) {
+        int sorgente = Moves.source(comando);
+        int destinazione = Moves.destination(comando);
+        if ((comando & Moves.NON_CONTATA) != 0 && Moves.isFoundation(destinazione)) {
+            return AUTOMATICA + (destinazione - Moves.FONDAMENTA) * 8 + sorgente;
+        }
+        return sorgente << 4 | destinazione;
+    }
+
+    void aggiungi(int evento) {
+        if (lunghezza == eventi.length) {
+            eventi = Arrays.copyOf(eventi, eventi.length * 2);
+        }
+        eventi[lunghezza++] = (byte) evento;
+    }
+
+    /**
+     * Registra un salto della timeline. Più salti di fila (lo slider
+     * trascinato) diventano uno solo verso l'ultima mossa: conta solo dove
+     * si arriva.
+     */
+    void aggiungiSalto(int mossa) {
+        if (ultimoSalto >= 0 && ultimoSalto == lunghezza - 5) {
+            lunghezza = ultimoSalto;
+        }
+        ultimoSalto = lunghezza;
+        aggiungi(SALTO);
+        aggiungi(mossa >>> 24);
+        aggiungi(mossa >>> 16);
+        aggiungi(mossa >>> 8);
+        aggiungi(mossa);
+    }
+
+    // ── Formato binario ──────────────────────────────────────────────────────
+    int dimensione() {
+        return 1 + 8 + 1 + (inizio == null ? 0 : inizio.toBytes().length) + 4 + lunghezza;
+    }
+
+    void scrivi(ByteBuffer buffer) {
+        buffer.put((byte) difficolta.ordinal());
+        buffer.putLong(numeroPartita);
+        if (inizio == null) {
+            buffer.put((byte) 0);
+        } else {
+            byte[] posizione = inizio.toBytes();
+            buffer.put((byte) posizione.length);
+            buffer.put(posizione);
+        }
+        buffer.putInt(lunghezza);
+        buffer.put(eventi, 0, lunghezza);
+    }
+
+    static RegistrazionePartita leggi(ByteBuffer buffer) {
+        GameModel.Difficulty difficolta = GameModel.Difficulty.values()[buffer.get()];
+        long seme = buffer.getLong();
+        int dimensionePosizione = buffer.get() & 0xFF;
+        BoardState inizio = null;
+        if (dimensionePosizione > 0) {
+            byte[] posizione = new byte[dimensionePosizione];
+            buffer.get(posizione);
+            inizio = BoardState.fromBytes(posizione);
+        }
+        int lunghezza = buffer.getInt();
+        if (lunghezza < 0 || lunghezza > buffer.remaining()) {
+            throw new IllegalArgumentException("Replay non valido");
+        }
+        byte[] eventi = new byte[Math.max(256, lunghezza)];
+        buffer.get(eventi, 0, lunghezza);
+        return new RegistrazionePartita(difficolta, seme, inizio, eventi, lunghezza);
+    }
+}
@@ -0,0 +1,154 @@
+package solitairegame;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * SALVATAGGIO PARTITA - Salva e riprende la partita in corso in un piccolo
+ * file binario.
+ *
+ * Il file contiene la posizione attuale e il registro delle mosse (2 byte a
+ * mossa), quindi anche annulla/ripeti e la timeline sopravvivono alla
+ * chiusura: poche centinaia di byte, letti con una sola chiamata al canale.
+ *
+ * Formato:
+ * <pre>
+ * magic "SOLS", versione, lunghezza dati (int)
+ * dati: difficoltà, numero partita, secondi, mosse, partita iniziata,
+ *       posizione (lunghezza + byte del BoardState),
+ *       lunghezza registro, posizione nel registro, mosse (short),
+ *       replay della partita ({@link RegistrazionePartita})
+ * CRC32 dei dati (int)
+ * </pre>
+ * La scrittura passa da un file temporaneo rinominato alla fine: un
+ * salvataggio interrotto lascia intatto quello precedente. Lo stesso
+ * involucro (magic, versione, lunghezza, CRC32) serve anche ai replay di
+ * {@link RegistrazionePartita}.
+ */
+public final class SalvataggioPartita {
+
+    private static final int MAGIC = 0x534F4C53; // "SOLS"
+    private static final int VERSIONE = 2; // 2: aggiunto il replay della partita
+    private static final int HEADER = 12;
+
+    private SalvataggioPartita() {
+    }
+
+    /**
+     * File di salvataggio predefinito, nella cartella dell'utente.
+     */
+    public static Path percorsoPredefinito() {
+        return Paths.get(System.getProperty("user.home"), ".solitario", "partita.sav");
+    }
+
+    // ── Scrittura ────────────────────────────────────────────────────────────
+    public static void salva(GameModel modello, Path file) throws IOException {
+        ByteBuffer dati = ByteBuffer.allocate(modello.dimensioneStato());
+        modello.scriviStato(dati);
+        scriviFile(file, MAGIC, VERSIONE, dati);
+    }
+
+    /**
+     * Scrive i dati (da 0 alla posizione corrente) nell'involucro con
+     * magic, versione e controllo.
+     */
+    static void scriviFile(Path file, int magic, int versione, ByteBuffer dati) throws IOException {
+        int lunghezza = dati.position();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER + lunghezza + 4);
+        buffer.position(HEADER);
+        buffer.put(dati.array(), 0, lunghezza);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER, lunghezza);
+        buffer.putInt((int) crc.getValue());
+        buffer.putInt(0, magic);
+        buffer.putInt(4, versione);
+        buffer.putInt(8, lunghezza);
+        buffer.flip();
+
+        Path cartella = file.toAbsolutePath().getParent();
+        Files.createDirectories(cartella);
+        Path temporaneo = cartella.resolve(file.getFileName() + ".tmp");
+        try (FileChannel canale = FileChannel.open(temporaneo, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                canale.write(buffer);
+            }
+        }
+        try {
+            Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporaneo, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // ── Lettura ──────────────────────────────────────────────────────────────
+    /**
+     * Riprende nel modello la partita salvata. Ritorna false, lasciando il
+     * modello com'è, se il file manca, è di un'altra versione o è danneggiato.
+     */
+    public static boolean carica(GameModel modello, Path file) throws IOException {
+        ByteBuffer dati = leggiFile(file, MAGIC, VERSIONE);
+        if (dati == null) {
+            return false;
+        }
+        try {
+            modello.leggiStato(dati);
+        } catch (BufferUnderflowException | IllegalArgumentException | IndexOutOfBoundsException e) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Dati contenuti nell'involucro, oppure null se il file manca, ha un
+     * altro magic o un'altra versione, o non supera il controllo.
+     */
+    static ByteBuffer leggiFile(Path file, int magic, int versione) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        ByteBuffer buffer;
+        try (FileChannel canale = FileChannel.open(file, StandardOpenOption.READ)) {
+            long dimensione = canale.size();
+            if (dimensione < HEADER + 4 || dimensione > Integer.MAX_VALUE) {
+                return null;
+            }
+            buffer = ByteBuffer.allocate((int) dimensione);
+            while (buffer.hasRemaining() && canale.read(buffer) >= 0) {
+            }
+        }
+        buffer.flip();
+
+        int lunghezza = buffer.getInt(8);
+        if (buffer.getInt(0) != magic || buffer.getInt(4) != versione
+                || lunghezza < 0 || lunghezza != buffer.limit() - HEADER - 4) {
+            return null;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), HEADER, lunghezza);
+        if (buffer.getInt(HEADER + lunghezza) != (int) crc.getValue()) {
+            return null;
+        }
+
+        buffer.position(HEADER).limit(HEADER + lunghezza);
+        return buffer.slice();
+    }
+
+    /**
+     * Cancella il salvataggio, ad esempio a partita vinta.
+     */
+    public static void elimina(Path file) throws IOException {
+        Files.deleteIfExists(file);
+    }
+}
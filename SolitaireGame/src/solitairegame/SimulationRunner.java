@@ -0,0 +1,257 @@
+package solitairegame;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SIMULAZIONE - Gioca partite senza interfaccia grafica, pilotando
+ * {@link GameModel} con le stesse chiamate del controller
+ * (drawFromStock, startDragFrom*, tryPlaceOn*) secondo una politica euristica.
+ *
+ * Le partite sono numerate a partire da un seme iniziale e vengono
+ * distribuite su tutti i core. Anche il generatore che sceglie tra mosse a
+ * pari punteggio dipende solo dal numero della partita
+ * ({@link #generatorePartita(long)}), quindi ogni esecuzione è riproducibile
+ * con qualsiasi numero di thread.
+ *
+ * Uso: SimulationRunner [partite] [CASUALE|FONDAMENTA_PRIMA|SCOPRI_PRIMA]
+ *                       [FACILE|DIFFICILE|ENTRAMBE] [thread] [semeIniziale]
+ */
+public class SimulationRunner {
+
+    // Oltre questo numero di mosse la partita è considerata persa
+    private static final int MAX_MOSSE = 600;
+
+    // Separa il flusso delle scelte da quello che mescola la smazzata
+    private static final long SALE_SCELTE = 0x5C3E17E5C3E17E5L;
+
+    // ── Politiche ────────────────────────────────────────────────────────────
+    public enum Politica {
+        /** Mossa legale qualsiasi, scelta a caso. */
+        CASUALE,
+        /** Prima le fondamenta, poi scoprire carte, poi lo scarto, infine pescare. */
+        FONDAMENTA_PRIMA,
+        /** Prima scoprire carte coperte, poi le fondamenta. */
+        SCOPRI_PRIMA;
+
+        int punteggio(int mossa) {
+            if (this == CASUALE) {
+                return 0;
+            }
+            if (Moves.isDraw(mossa)) {
+                return 10;
+            }
+            if (Moves.isRecycle(mossa)) {
+                return 5;
+            }
+            int p = Moves.source(mossa) == Moves.SCARTO ? 60 : 30;
+            if (Moves.isFoundation(Moves.destination(mossa))) {
+                p = 100;
+            }
+            if (Moves.flipped(mossa)) {
+                p += this == SCOPRI_PRIMA ? 120 : 50;
+            }
+            return p;
+        }
+    }
+
+    // ── Statistiche per difficoltà ───────────────────────────────────────────
+    private static class Statistiche {
+
+        final AtomicLong partite = new AtomicLong();
+        final AtomicLong vinte = new AtomicLong();
+        final AtomicLong mosse = new AtomicLong();
+
+        void registra(boolean vinta, int numeroMosse) {
+            partite.incrementAndGet();
+            if (vinta) {
+                vinte.incrementAndGet();
+            }
+            mosse.addAndGet(numeroMosse);
+        }
+    }
+
+    private final Politica politica;
+
+    public SimulationRunner(Politica politica) {
+        this.politica = politica;
+    }
+
+    /**
+     * Gioca una partita fino alla vittoria o allo stallo.
+     * Ritorna il numero di mosse, negativo se la partita è persa.
+     */
+    public int giocaPartita(GameModel modello, long numeroPartita, GameModel.Difficulty difficolta,
+            DealRandom generatore) {
+        modello.setDifficulty(difficolta);
+        modello.initGame(numeroPartita);
+
+        int[] candidate = new int[GameModel.MAX_MOSSE_LEGALI];
+        int mosse = 0;
+        int pescateDiFila = 0;
+        while (mosse < MAX_MOSSE) {
+            if (modello.checkWin()) {
+                return mosse;
+            }
+            int n = generaCandidate(modello, candidate);
+            if (n == 0) {
+                break;
+            }
+            int scelta = scegli(candidate, n, generatore);
+            if (Moves.isDraw(scelta) || Moves.isRecycle(scelta)) {
+                // Due giri completi del mazzetto senza altre mosse: stallo
+                int mazzetto = modello.getStockPile().size() + modello.getWastePile().size();
+                if (++pescateDiFila > 2 * (mazzetto + 1)) {
+                    break;
+                }
+            } else {
+                pescateDiFila = 0;
+            }
+            esegui(modello, scelta);
+            mosse++;
+        }
+        return modello.checkWin() ? mosse : -mosse;
+    }
+
+    /**
+     * Generatore delle scelte casuali per la partita indicata: non dipende
+     * da quale thread la gioca né dall'ordine delle partite.
+     */
+    static DealRandom generatorePartita(long numeroPartita) {
+        return new DealRandom(numeroPartita ^ SALE_SCELTE).split();
+    }
+
+    private int scegli(int[] candidate, int n, DealRandom generatore) {
+        int migliore = Integer.MIN_VALUE;
+        int scelta = 0;
+        int pari = 0;
+        for (int i = 0; i < n; i++) {
+            int p = politica.punteggio(candidate[i]);
+            if (p > migliore) {
+                migliore = p;
+                scelta = candidate[i];
+                pari = 1;
+            } else if (p == migliore && generatore.nextInt(++pari) == 0) {
+                // Campionamento uniforme tra le mosse a pari punteggio
+                scelta = candidate[i];
+            }
+        }
+        return scelta;
+    }
+
+    /**
+     * Esegue la mossa con le chiamate del controller.
+     */
+    private static void esegui(GameModel modello, int mossa) {
+        int sorgente = Moves.source(mossa);
+        int destinazione = Moves.destination(mossa);
+        if (sorgente == Moves.STOCK || destinazione == Moves.STOCK) {
+            modello.drawFromStock();
+            return;
+        }
+        if (sorgente == Moves.SCARTO) {
+            modello.startDragFromWaste();
+        } else {
+            List<GameModel.Card> pila = modello.getTableau().get(sorgente);
+            modello.startDragFromTableau(sorgente, pila.size() - Moves.count(mossa));
+        }
+        if (Moves.isFoundation(destinazione)) {
+            modello.tryPlaceOnFoundation(destinazione - Moves.FONDAMENTA);
+        } else {
+            modello.tryPlaceOnTableau(destinazione);
+        }
+        modello.clearDrag();
+    }
+
+    /**
+     * Mosse sensate nella posizione corrente, scelte tra quelle di
+     * {@link GameModel#generaMosseLegali}: niente mosse dalle fondamenta, e
+     * le sequenze del tavolo si spostano solo intere e mai se sono già un re
+     * alla base della colonna. Le mosse che scoprono hanno il bit
+     * {@link Moves#SCOPERTA}.
+     */
+    static int generaCandidate(GameModel modello, int[] buf) {
+        int totale = modello.generaMosseLegali(buf, 0);
+        int n = 0;
+        for (int i = 0; i < totale; i++) {
+            int mossa = buf[i];
+            int sorgente = Moves.source(mossa);
+            if (Moves.isFoundation(sorgente)) {
+                continue;
+            }
+            if (Moves.isTableau(sorgente) && Moves.isTableau(Moves.destination(mossa))) {
+                int prima = modello.getFirstFaceUp(sorgente);
+                int dimensione = modello.getTableau().get(sorgente).size();
+                if (Moves.count(mossa) != dimensione - prima || prima == 0 && isReBase(modello, sorgente)) {
+                    continue;
+                }
+            }
+            buf[n++] = mossa;
+        }
+        return n;
+    }
+
+    private static boolean isReBase(GameModel modello, int colonna) {
+        return modello.getTableau().get(colonna).get(0).getRank() == GameModel.Card.Rank.KING;
+    }
+
+    // ── Entry point ──────────────────────────────────────────────────────────
+    public static void main(String[] args) throws InterruptedException {
+        int partite = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        Politica politica = args.length > 1 ? Politica.valueOf(args[1]) : Politica.FONDAMENTA_PRIMA;
+        String livello = args.length > 2 ? args[2] : "ENTRAMBE";
+        int thread = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        long semeIniziale = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        GameModel.Difficulty[] difficolta = "ENTRAMBE".equals(livello)
+                ? GameModel.Difficulty.values()
+                : new GameModel.Difficulty[]{GameModel.Difficulty.valueOf(livello)};
+        Statistiche[] statistiche = new Statistiche[GameModel.Difficulty.values().length];
+        for (int i = 0; i < statistiche.length; i++) {
+            statistiche[i] = new Statistiche();
+        }
+
+        SimulationRunner runner = new SimulationRunner(politica);
+        ExecutorService esecutore = Executors.newFixedThreadPool(thread);
+        long inizio = System.nanoTime();
+
+        // Ogni thread gioca le partite i ≡ t (mod thread) con il proprio modello
+        for (int t = 0; t < thread; t++) {
+            final int primo = t;
+            esecutore.execute(() -> {
+                GameModel modello = new GameModel();
+                for (int i = primo; i < partite; i += thread) {
+                    GameModel.Difficulty d = difficolta[i % difficolta.length];
+                    long numero = semeIniziale + i;
+                    int esito = runner.giocaPartita(modello, numero, d, generatorePartita(numero));
+                    statistiche[d.ordinal()].registra(esito >= 0, Math.abs(esito));
+                }
+            });
+        }
+        esecutore.shutdown();
+        esecutore.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        double secondi = (System.nanoTime() - inizio) / 1e9;
+
+        System.out.printf("Politica %s, %d partite, %d thread, %.2f s (%.0f partite/s)%n",
+                politica, partite, thread, secondi, partite / secondi);
+        System.out.printf("%-10s %9s %9s %12s%n", "livello", "partite", "vinte %", "mosse medie");
+        long totPartite = 0, totVinte = 0, totMosse = 0;
+        for (GameModel.Difficulty d : difficolta) {
+            Statistiche s = statistiche[d.ordinal()];
+            stampaRiga(d.name(), s.partite.get(), s.vinte.get(), s.mosse.get());
+            totPartite += s.partite.get();
+            totVinte += s.vinte.get();
+            totMosse += s.mosse.get();
+        }
+        stampaRiga("totale", totPartite, totVinte, totMosse);
+    }
+
+    private static void stampaRiga(String nome, long partite, long vinte, long mosse) {
+        System.out.printf("%-10s %9d %8.2f%% %12.1f%n", nome, partite,
+                partite == 0 ? 0 : 100.0 * vinte / partite,
+                partite == 0 ? 0 : (double) mosse / partite);
+    }
+}
@@ -0,0 +1,221 @@
+package solitairegame;
+
+import java.util.Arrays;
+
+/**
+ * SOLVER - Stabilisce se una smazzata può essere vinta e, in caso
+ * affermativo, restituisce la sequenza di mosse vincente.
+ *
+ * Ricerca in profondità su {@link TavoloRicerca} (solo primitivi, mosse
+ * applicate e annullate sul posto) con tabella di trasposizione sulla
+ * chiave canonica ({@link BoardState#canonicalKey()}): posizioni che
+ * differiscono solo per l'ordine delle colonne o delle fondamenta vengono
+ * espanse una sola volta. Le mosse sono ordinate con le
+ * stesse regole di {@link GameModel#canPlaceOnFoundation} e
+ * {@link GameModel#canPlaceOnTableau}: prima fondamenta, poi mosse che
+ * scoprono carte, infine pescate.
+ *
+ * La ricerca rispetta un budget di nodi e di tempo; se si esaurisce l'esito
+ * è {@link Esito#INDETERMINATO}. {@link Esito#IMPOSSIBILE} non è una prova
+ * (vedi {@link Esito}). Per usare più core vedi
+ * {@link ParallelSolver}.
+ */
+public class Solver {
+
+    /**
+     * IMPOSSIBILE significa "nessuna vittoria trovata dalla ricerca potata"
+     * senza esaurire il budget, non una prova: {@link TavoloRicerca#generaMosse}
+     * non genera ogni mossa legale (alcune sequenze spezzate sono escluse) e
+     * le posizioni visitate sono riconosciute dalla sola chiave a 64 bit,
+     * quindi una collisione può scartare una posizione raggiungibile.
+     */
+    public enum Esito {
+        VINCIBILE, IMPOSSIBILE, INDETERMINATO
+    }
+
+    // ── Risultato ────────────────────────────────────────────────────────────
+    public static class Risultato {
+
+        private final Esito esito;
+        private final int[] mosse;
+        private final long nodi;
+        private final long millisecondi;
+
+        Risultato(Esito esito, int[] mosse, long nodi, long millisecondi) {
+            this.esito = esito;
+            this.mosse = mosse;
+            this.nodi = nodi;
+            this.millisecondi = millisecondi;
+        }
+
+        public Esito getEsito() {
+            return esito;
+        }
+
+        public boolean isWinnable() {
+            return esito == Esito.VINCIBILE;
+        }
+
+        /**
+         * Mosse vincenti codificate con {@link Moves}, applicabili in ordine
+         * con {@link GameModel#applyMove(int)}. Vuoto se non vincibile.
+         */
+        public int[] getMosse() {
+            return mosse.clone();
+        }
+
+        public long getNodi() {
+            return nodi;
+        }
+
+        public long getMillisecondi() {
+            return millisecondi;
+        }
+
+        @Override
+        public String toString() {
+            return esito + " (" + mosse.length + " mosse, " + nodi + " nodi, " + millisecondi + " ms)";
+        }
+    }
+
+    // ── Budget ───────────────────────────────────────────────────────────────
+    public static final long NODI_PREDEFINITI = 2_000_000;
+    public static final long MILLIS_PREDEFINITI = 1_000;
+
+    private static final int CONTROLLO_TEMPO = 4096;
+
+    private final long maxNodi;
+    private final long maxMillisecondi;
+
+    public Solver() {
+        this(NODI_PREDEFINITI, MILLIS_PREDEFINITI);
+    }
+
+    public Solver(long maxNodi, long maxMillisecondi) {
+        this.maxNodi = maxNodi;
+        this.maxMillisecondi = maxMillisecondi;
+    }
+
+    /**
+     * Analizza la posizione corrente del modello con la sua difficoltà.
+     */
+    public Risultato risolvi(GameModel modello) {
+        return risolvi(modello.getBoardState(), modello.getDifficulty());
+    }
+
+    public Risultato risolvi(BoardState stato, GameModel.Difficulty difficolta) {
+        return risolvi(stato, difficolta, new LimiteRicerca(maxNodi, maxMillisecondi));
+    }
+
+    /**
+     * Ricerca con un limite fornito dal chiamante, che può interromperla da
+     * un altro thread con {@link LimiteRicerca#ferma()}.
+     */
+    Risultato risolvi(BoardState stato, GameModel.Difficulty difficolta, LimiteRicerca limite) {
+        int carteDaPescare = difficolta == GameModel.Difficulty.FACILE ? 1 : 3;
+        return cerca(new TavoloRicerca(stato, carteDaPescare), limite);
+    }
+
+    public static boolean isWinnable(GameModel modello) {
+        return new Solver().risolvi(modello).isWinnable();
+    }
+
+    // ── Ricerca ──────────────────────────────────────────────────────────────
+    private Risultato cerca(TavoloRicerca tavolo, LimiteRicerca limite) {
+        long inizio = System.nanoTime();
+        if (tavolo.vinta()) {
+            return new Risultato(Esito.VINCIBILE, new int[0], 1, 0);
+        }
+
+        TabellaTrasposizione visitate = new TabellaTrasposizione(1 << 16);
+        visitate.aggiungi(tavolo.chiave());
+
+        int[] soluzione = esplora(tavolo, visitate, limite);
+        return risultato(soluzione, limite, inizio);
+    }
+
+    static Risultato risultato(int[] soluzione, LimiteRicerca limite, long inizioNano) {
+        Esito esito = soluzione != null ? Esito.VINCIBILE
+                : limite.isEsaurito() ? Esito.INDETERMINATO : Esito.IMPOSSIBILE;
+        return new Risultato(esito, soluzione != null ? soluzione : new int[0],
+                limite.getNodi(), millisDa(inizioNano));
+    }
+
+    /**
+     * Ricerca in profondità a partire dalla posizione di tavolo, che deve già
+     * essere registrata in visitate. Ritorna le mosse vincenti (senza bit di
+     * carta scoperta) oppure null se lo spazio è esaurito o il limite ha
+     * fermato la ricerca. All'uscita tavolo è tornato alla posizione iniziale.
+     */
+    static int[] esplora(TavoloRicerca tavolo, InsiemeVisitate visitate, LimiteRicerca limite) {
+        // Stack esplicito: la profondità può arrivare a centinaia di mosse
+        int[] buffer = new int[4096];
+        int[] inizioLivello = new int[256];
+        int[] fineLivello = new int[256];
+        int[] prossima = new int[256];
+        int[] applicate = new int[256];
+
+        int profondita = 0;
+        fineLivello[0] = tavolo.generaMosse(buffer, 0);
+        int nodiBlocco = 1;
+
+        while (true) {
+            if (inizioLivello[profondita] + prossima[profondita] >= fineLivello[profondita]) {
+                if (profondita == 0) {
+                    limite.registra(nodiBlocco);
+                    return null;
+                }
+                profondita--;
+                tavolo.annulla(applicate[profondita]);
+                continue;
+            }
+
+            int mossa = buffer[inizioLivello[profondita] + prossima[profondita]++];
+            int applicata = tavolo.applica(mossa);
+            if (!visitate.aggiungi(tavolo.chiave())) {
+                tavolo.annulla(applicata);
+                continue;
+            }
+            applicate[profondita] = applicata;
+            profondita++;
+
+            if (tavolo.vinta()) {
+                limite.registra(nodiBlocco);
+                int[] soluzione = new int[profondita];
+                for (int i = profondita - 1; i >= 0; i--) {
+                    soluzione[i] = applicate[i] & ~Moves.SCOPERTA;
+                    tavolo.annulla(applicate[i]);
+                }
+                return soluzione;
+            }
+
+            if (++nodiBlocco == CONTROLLO_TEMPO) {
+                nodiBlocco = 0;
+                if (!limite.consuma(CONTROLLO_TEMPO)) {
+                    while (profondita > 0) {
+                        tavolo.annulla(applicate[--profondita]);
+                    }
+                    return null;
+                }
+            }
+
+            if (profondita == applicate.length) {
+                inizioLivello = Arrays.copyOf(inizioLivello, profondita * 2);
+                fineLivello = Arrays.copyOf(fineLivello, profondita * 2);
+                prossima = Arrays.copyOf(prossima, profondita * 2);
+                applicate = Arrays.copyOf(applicate, profondita * 2);
+            }
+            int base = fineLivello[profondita - 1];
+            if (base + 256 > buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            inizioLivello[profondita] = base;
+            prossima[profondita] = 0;
+            fineLivello[profondita] = tavolo.generaMosse(buffer, base);
+        }
+    }
+
+    private static long millisDa(long inizioNano) {
+        return (System.nanoTime() - inizioNano) / 1_000_000L;
+    }
+}
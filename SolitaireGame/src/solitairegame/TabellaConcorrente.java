@@ -0,0 +1,73 @@
+package solitairegame;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Insieme di chiavi di posizione condiviso fra più thread di ricerca.
+ *
+ * Indirizzamento aperto a capacità fissa su un {@link AtomicLongArray}:
+ * l'inserimento è un compareAndSet, senza lock né oggetti per chiave. Se la
+ * tabella si riempie le nuove chiavi non vengono più memorizzate; la ricerca
+ * resta corretta ma può rivisitare qualche posizione.
+ *
+ * La tabella si riusa tra una ricerca e l'altra con {@link #svuota()}, che
+ * azzera solo i blocchi di {@link #BLOCCO} slot in cui è stato scritto
+ * qualcosa: una ricerca breve costa poco anche con una tabella grande.
+ */
+final class TabellaConcorrente implements InsiemeVisitate {
+
+    private static final int MAX_TENTATIVI = 64;
+    static final int BLOCCO = 64;
+
+    private final AtomicLongArray chiavi;
+    private final int maschera;
+    // Blocchi con almeno una chiave; scritture concorrenti tutte a true,
+    // visibili a chi svuota dopo la join della ricerca
+    private final boolean[] sporchi;
+
+    TabellaConcorrente(int capacita) {
+        int arrotondata = Integer.highestOneBit(Math.max(BLOCCO, capacita) - 1) << 1;
+        chiavi = new AtomicLongArray(arrotondata);
+        maschera = arrotondata - 1;
+        sporchi = new boolean[arrotondata / BLOCCO];
+    }
+
+    /**
+     * Toglie tutte le chiavi. Da chiamare quando nessun thread sta cercando.
+     */
+    void svuota() {
+        for (int b = 0; b < sporchi.length; b++) {
+            if (sporchi[b]) {
+                sporchi[b] = false;
+                for (int i = b * BLOCCO, fine = i + BLOCCO; i < fine; i++) {
+                    chiavi.setPlain(i, 0);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean aggiungi(long chiave) {
+        if (chiave == 0) {
+            chiave = 1; // 0 indica slot libero
+        }
+        int i = (int) TavoloRicerca.mescola(chiave) & maschera;
+        for (int tentativo = 0; tentativo < MAX_TENTATIVI; tentativo++) {
+            long presente = chiavi.get(i);
+            if (presente == chiave) {
+                return false;
+            }
+            if (presente == 0) {
+                if (chiavi.compareAndSet(i, 0, chiave)) {
+                    sporchi[i / BLOCCO] = true;
+                    return true;
+                }
+                if (chiavi.get(i) == chiave) {
+                    return false;
+                }
+            }
+            i = (i + 1) & maschera;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,56 @@
+package solitairegame;
+
+/**
+ * Insieme di chiavi di posizione a 64 bit, con indirizzamento aperto su un
+ * array di long: nessun oggetto allocato per posizione visitata.
+ */
+final class TabellaTrasposizione implements InsiemeVisitate {
+
+    private long[] chiavi;
+    private int dimensione;
+    private int maschera;
+
+    TabellaTrasposizione(int capacitaIniziale) {
+        int capacita = Integer.highestOneBit(Math.max(16, capacitaIniziale) - 1) << 1;
+        chiavi = new long[capacita];
+        maschera = capacita - 1;
+    }
+
+    @Override
+    public boolean aggiungi(long chiave) {
+        if (chiave == 0) {
+            chiave = 1; // 0 indica slot libero
+        }
+        int i = (int) TavoloRicerca.mescola(chiave) & maschera;
+        while (chiavi[i] != 0) {
+            if (chiavi[i] == chiave) {
+                return false;
+            }
+            i = (i + 1) & maschera;
+        }
+        chiavi[i] = chiave;
+        if (++dimensione * 2 > chiavi.length) {
+            raddoppia();
+        }
+        return true;
+    }
+
+    int size() {
+        return dimensione;
+    }
+
+    private void raddoppia() {
+        long[] vecchie = chiavi;
+        chiavi = new long[vecchie.length * 2];
+        maschera = chiavi.length - 1;
+        for (long chiave : vecchie) {
+            if (chiave != 0) {
+                int i = (int) TavoloRicerca.mescola(chiave) & maschera;
+                while (chiavi[i] != 0) {
+                    i = (i + 1) & maschera;
+                }
+                chiavi[i] = chiave;
+            }
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package solitairegame;
+
+/**
+ * Posizione mutabile a soli primitivi usata dalla ricerca.
+ *
+ * Stock e scarto sono tenuti in un unico array ("mazzetto"): le carte in
+ * [0, cursore) sono lo scarto (cima in cursore - 1), quelle in
+ * [cursore, lunghezzaMazzetto) lo stock (cima in cursore). Pescare sposta
+ * solo il cursore e riciclare lo riporta a zero, esattamente come fa
+ * {@link GameModel#drawFromStock()} invertendo lo scarto.
+ *
+ * Le mosse sono codificate con {@link Moves}; {@link #applica(int)} restituisce
+ * la mossa con il bit di carta scoperta impostato, da passare ad
+ * {@link #annulla(int)}.
+ */
+final class TavoloRicerca {
+
+    private static final int MAX_COLONNA = 20;
+
+    final byte[] mazzetto = new byte[24];
+    int lunghezzaMazzetto;
+    int cursore;
+
+    final byte[] cime = new byte[4];
+    final byte[][] colonne = new byte[7][MAX_COLONNA];
+    final int[] lunghezze = new int[7];
+    final int[] primeScoperte = new int[7];
+
+    final int carteDaPescare;
+
+    // Altezza raggiunta da ogni seme in fondamenta, ricalcolata a ogni generazione
+    private final int[] altezze = new int[4];
+
+    TavoloRicerca(BoardState stato, int carteDaPescare) {
+        this.carteDaPescare = carteDaPescare;
+        int scarto = stato.wasteSize();
+        int stock = stato.stockSize();
+        for (int i = 0; i < scarto; i++) {
+            mazzetto[i] = (byte) stato.wasteCard(i);
+        }
+        for (int i = 0; i < stock; i++) {
+            mazzetto[scarto + i] = (byte) stato.stockCard(stock - 1 - i);
+        }
+        lunghezzaMazzetto = scarto + stock;
+        cursore = scarto;
+        for (int f = 0; f < 4; f++) {
+            cime[f] = (byte) stato.foundationTop(f);
+        }
+        for (int col = 0; col < 7; col++) {
+            lunghezze[col] = stato.tableauSize(col);
+            primeScoperte[col] = stato.firstFaceUp(col);
+            for (int i = 0; i < lunghezze[col]; i++) {
+                colonne[col][i] = (byte) stato.tableauCard(col, i);
+            }
+        }
+    }
+
+    TavoloRicerca(TavoloRicerca altro) {
+        carteDaPescare = altro.carteDaPescare;
+        System.arraycopy(altro.mazzetto, 0, mazzetto, 0, altro.lunghezzaMazzetto);
+        lunghezzaMazzetto = altro.lunghezzaMazzetto;
+        cursore = altro.cursore;
+        System.arraycopy(altro.cime, 0, cime, 0, 4);
+        for (int col = 0; col < 7; col++) {
+            System.arraycopy(altro.colonne[col], 0, colonne[col], 0, altro.lunghezze[col]);
+            lunghezze[col] = altro.lunghezze[col];
+            primeScoperte[col] = altro.primeScoperte[col];
+        }
+    }
+
+    BoardState toBoardState() {
+        int stock = lunghezzaMazzetto - cursore;
+        int totale = BoardState.CARTE + lunghezzaMazzetto;
+        for (int col = 0; col < 7; col++) {
+            totale += lunghezze[col];
+        }
+        byte[] dati = new byte[totale];
+        dati[BoardState.STOCK] = (byte) stock;
+        dati[BoardState.SCARTO] = (byte) cursore;
+        System.arraycopy(cime, 0, dati, BoardState.FONDAMENTA, 4);
+        int pos = BoardState.CARTE;
+        for (int i = lunghezzaMazzetto - 1; i >= cursore; i--) {
+            dati[pos++] = mazzetto[i];
+        }
+        System.arraycopy(mazzetto, 0, dati, pos, cursore);
+        pos += cursore;
+        for (int col = 0; col < 7; col++) {
+            dati[BoardState.DIM_COLONNE + col] = (byte) lunghezze[col];
+            dati[BoardState.PRIME_SCOPERTE + col] = (byte) primeScoperte[col];
+            System.arraycopy(colonne[col], 0, dati, pos, lunghezze[col]);
+            pos += lunghezze[col];
+        }
+        return new BoardState(dati);
+    }
+
+    boolean vinta() {
+        for (int f = 0; f < 4; f++) {
+            if (cime[f] < 0 || cime[f] % 13 != 12) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // ── Applicazione e annullamento ──────────────────────────────────────────
+    int applica(int mossa) {
+        int sorgente = Moves.source(mossa);
+        int destinazione = Moves.destination(mossa);
+        int n = Moves.count(mossa);
+
+        if (sorgente == Moves.STOCK) {
+            cursore += n;
+            return mossa;
+        }
+        if (destinazione == Moves.STOCK) {
+            cursore = 0;
+            return mossa;
+        }
+
+        if (sorgente == Moves.SCARTO) {
+            byte carta = mazzetto[--cursore];
+            System.arraycopy(mazzetto, cursore + 1, mazzetto, cursore, lunghezzaMazzetto - cursore - 1);
+            lunghezzaMazzetto--;
+            deposita(destinazione, carta);
+        } else if (Moves.isFoundation(sorgente)) {
+            int f = sorgente - Moves.FONDAMENTA;
+            byte carta = cime[f];
+            cime[f] = carta % 13 == 0 ? -1 : (byte) (carta - 1);
+            deposita(destinazione, carta);
+        } else {
+            int inizio = lunghezze[sorgente] - n;
+            byte[] col = colonne[sorgente];
+            if (Moves.isFoundation(destinazione)) {
+                cime[destinazione - Moves.FONDAMENTA] = col[inizio];
+            } else {
+                System.arraycopy(col, inizio, colonne[destinazione], lunghezze[destinazione], n);
+                lunghezze[destinazione] += n;
+            }
+            lunghezze[sorgente] = inizio;
+            if (inizio > 0 && primeScoperte[sorgente] == inizio) {
+                primeScoperte[sorgente] = inizio - 1;
+                mossa |= Moves.SCOPERTA;
+            }
+        }
+        return mossa;
+    }
+
+    private void deposita(int destinazione, byte carta) {
+        if (Moves.isFoundation(destinazione)) {
+            cime[destinazione - Moves.FONDAMENTA] = carta;
+        } else {
+            colonne[destinazione][lunghezze[destinazione]++] = carta;
+        }
+    }
+
+    void annulla(int mossa) {
+        int sorgente = Moves.source(mossa);
+        int destinazione = Moves.destination(mossa);
+        int n = Moves.count(mossa);
+
+        if (sorgente == Moves.STOCK) {
+            cursore -= n;
+            return;
+        }
+        if (destinazione == Moves.STOCK) {
+            cursore = lunghezzaMazzetto;
+            return;
+        }
+
+        if (Moves.isFoundation(destinazione)) {
+            int f = destinazione - Moves.FONDAMENTA;
+            byte carta = cime[f];
+            cime[f] = carta % 13 == 0 ? -1 : (byte) (carta - 1);
+            rimetti(sorgente, carta, mossa);
+            return;
+        }
+
+        lunghezze[destinazione] -= n;
+        int da = lunghezze[destinazione];
+        if (Moves.isTableau(sorgente)) {
+            if (Moves.flipped(mossa)) {
+                primeScoperte[sorgente] = lunghezze[sorgente];
+            }
+            System.arraycopy(colonne[destinazione], da, colonne[sorgente], lunghezze[sorgente], n);
+            lunghezze[sorgente] += n;
+        } else {
+            rimetti(sorgente, colonne[destinazione][da], mossa);
+        }
+    }
+
+    private void rimetti(int sorgente, byte carta, int mossa) {
+        if (sorgente == Moves.SCARTO) {
+            System.arraycopy(mazzetto, cursore, mazzetto, cursore + 1, lunghezzaMazzetto - cursore);
+            mazzetto[cursore++] = carta;
+            lunghezzaMazzetto++;
+        } else if (Moves.isFoundation(sorgente)) {
+            cime[sorgente - Moves.FONDAMENTA] = carta;
+        } else {
+            if (Moves.flipped(mossa)) {
+                primeScoperte[sorgente] = lunghezze[sorgente];
+            }
+            colonne[sorgente][lunghezze[sorgente]++] = carta;
+        }
+    }
+
+    // ── Generazione mosse ────────────────────────────────────────────────────
+    /**
+     * Scrive le mosse candidate in buf a partire da pos, già ordinate per
+     * promettenza, e ritorna la nuova fine del buffer. Se esiste una mossa
+     * verso la fondamenta sicura (non può mai servire sul tavolo) viene
+     * restituita solo quella.
+     *
+     * Sono escluse le mosse che non cambiano nulla di utile: spostare un re
+     * già alla base di una colonna in un'altra colonna vuota, scegliere fra
+     * più colonne vuote equivalenti.
+     *
+     * Per contenere il ventaglio di ricerca è escluso anche lo spezzare una
+     * sequenza senza liberare una carta per la fondamenta, benché possa
+     * servire (per esempio a posare la cima dello scarto o di una fondamenta
+     * sulla carta liberata): la generazione non è completa, vedi
+     * {@link Solver.Esito}.
+     */
+    int generaMosse(int[] buf, int pos) {
+        int inizio = pos;
+        for (int s = 0; s < 4; s++) {
+            altezze[s] = 0;
+        }
+        for (int f = 0; f < 4; f++) {
+            if (cime[f] >= 0) {
+                altezze[cime[f] / 13] = cime[f] % 13 + 1;
+            }
+        }
+
+        // 1. Verso le fondamenta (dallo scarto e dalle cime delle colonne)
+        if (cursore > 0) {
+            int carta = mazzetto[cursore - 1];
+            int f = fondamentaPer(carta);
+            if (f >= 0) {
+                int mossa = Moves.of(Moves.SCARTO, Moves.FONDAMENTA + f, 1);
+                if (sicura(carta)) {
+                    buf[inizio] = mossa;
+                    return inizio + 1;
+                }
+                buf[pos++] = mossa;
+            }
+        }
+        for (int col = 0; col < 7; col++) {
+            if (lunghezze[col] == 0) {
+                continue;
+            }
+            int carta = colonne[col][lunghezze[col] - 1];
+            int f = fondamentaPer(carta);
+            if (f >= 0) {
+                int mossa = Moves.of(col, Moves.FONDAMENTA + f, 1);
+                if (sicura(carta)) {
+                    buf[inizio] = mossa;
+                    return inizio + 1;
+                }
+                buf[pos++] = mossa;
+            }
+        }
+
+        int colonnaVuota = -1;
+        for (int col = 0; col < 7; col++) {
+            if (lunghezze[col] == 0) {
+                colonnaVuota = col;
+                break;
+            }
+        }
+
+        // 2. Sequenze intere tra colonne: scoprono una carta o svuotano la colonna
+        for (int col = 0; col < 7; col++) {
+            int len = lunghezze[col];
+            if (len == 0) {
+                continue;
+            }
+            int prima = primeScoperte[col];
+            int carta = colonne[col][prima];
+            for (int dest = 0; dest < 7; dest++) {
+                if (dest == col) {
+                    continue;
+                }
+                if (lunghezze[dest] == 0) {
+                    if (dest != colonnaVuota || prima == 0 || carta % 13 != 12) {
+                        continue;
+                    }
+                } else if (!GameModel.regolaTavolo(carta, colonne[dest][lunghezze[dest] - 1])) {
+                    continue;
+                }
+                buf[pos++] = Moves.of(col, dest, len - prima);
+            }
+        }
+
+        // 3. Dallo scarto al tavolo
+        if (cursore > 0) {
+            int carta = mazzetto[cursore - 1];
+            for (int dest = 0; dest < 7; dest++) {
+                int cima = lunghezze[dest] == 0 ? -1 : colonne[dest][lunghezze[dest] - 1];
+                if ((cima >= 0 || dest == colonnaVuota) && GameModel.regolaTavolo(carta, cima)) {
+                    buf[pos++] = Moves.of(Moves.SCARTO, dest, 1);
+                }
+            }
+        }
+
+        // 4. Sequenze parziali che liberano una carta per la fondamenta
+        for (int col = 0; col < 7; col++) {
+            int len = lunghezze[col];
+            for (int i = primeScoperte[col] + 1; i < len; i++) {
+                if (fondamentaPer(colonne[col][i - 1]) < 0) {
+                    continue;
+                }
+                int carta = colonne[col][i];
+                for (int dest = 0; dest < 7; dest++) {
+                    if (dest == col) {
+                        continue;
+                    }
+                    int cima = lunghezze[dest] == 0 ? -1 : colonne[dest][lunghezze[dest] - 1];
+                    if ((cima >= 0 || dest == colonnaVuota) && GameModel.regolaTavolo(carta, cima)) {
+                        buf[pos++] = Moves.of(col, dest, len - i);
+                    }
+                }
+            }
+        }
+
+        // 5. Dalla fondamenta al tavolo, solo se la carta può poi accogliere qualcosa
+        for (int f = 0; f < 4; f++) {
+            int carta = cime[f];
+            if (carta < 0 || !accoglieQualcosa(carta)) {
+                continue;
+            }
+            for (int dest = 0; dest < 7; dest++) {
+                int cima = lunghezze[dest] == 0 ? -1 : colonne[dest][lunghezze[dest] - 1];
+                if ((cima >= 0 || dest == colonnaVuota) && GameModel.regolaTavolo(carta, cima)) {
+                    buf[pos++] = Moves.of(Moves.FONDAMENTA + f, dest, 1);
+                }
+            }
+        }
+
+        // 6. Pescata o riciclo
+        if (cursore < lunghezzaMazzetto) {
+            buf[pos++] = Moves.of(Moves.STOCK, Moves.SCARTO,
+                    Math.min(carteDaPescare, lunghezzaMazzetto - cursore));
+        } else if (cursore > 0) {
+            buf[pos++] = Moves.of(Moves.SCARTO, Moves.STOCK, cursore);
+        }
+        return pos;
+    }
+
+    /**
+     * Fondamenta che può accogliere la carta: quella del suo seme o, per un
+     * asso, la prima vuota. -1 se nessuna.
+     */
+    private int fondamentaPer(int carta) {
+        for (int f = 0; f < 4; f++) {
+            if (GameModel.regolaFondamenta(carta, cime[f])) {
+                return f;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Vero se la cima dello scarto o una carta scoperta del tavolo potrebbe
+     * appoggiarsi sulla carta indicata.
+     */
+    private boolean accoglieQualcosa(int carta) {
+        if (cursore > 0 && GameModel.regolaTavolo(mazzetto[cursore - 1], carta)) {
+            return true;
+        }
+        for (int col = 0; col < 7; col++) {
+            for (int i = primeScoperte[col]; i < lunghezze[col]; i++) {
+                if (GameModel.regolaTavolo(colonne[col][i], carta)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Una carta in fondamenta è sicura se le carte di colore opposto che
+     * potrebbero appoggiarvisi sopra sono già tutte in fondamenta.
+     */
+    private boolean sicura(int carta) {
+        int rango = carta % 13;
+        if (rango <= 1) {
+            return true;
+        }
+        boolean rossa = GameModel.isRossa(carta);
+        int primo = rossa ? 2 : 0;
+        return altezze[primo] >= rango && altezze[primo + 1] >= rango;
+    }
+
+    // ── Chiave di posizione ──────────────────────────────────────────────────
+    /**
+     * Chiave canonica: non dipende dall'ordine delle colonne né da quale
+     * fondamenta ospita un seme, perché le regole non distinguono queste
+     * posizioni. Colonne e fondamenta contribuiscono con una somma di hash
+     * indipendenti (commutativa); il mazzetto, il cui ordine conta, con un
+     * hash sequenziale. Posizioni equivalenti hanno la stessa chiave di
+     * {@link BoardState#canonical()}.
+     */
+    long chiave() {
+        long h = cursore * 0x9E3779B97F4A7C15L + lunghezzaMazzetto;
+        for (int i = 0; i < lunghezzaMazzetto; i++) {
+            h = mescola(h ^ mazzetto[i]);
+        }
+        long insiemi = 0;
+        for (int f = 0; f < 4; f++) {
+            insiemi += finalizza(cime[f] & 0xFF);
+        }
+        for (int col = 0; col < 7; col++) {
+            long c = lunghezze[col] << 8 | primeScoperte[col];
+            byte[] carte = colonne[col];
+            for (int i = 0; i < lunghezze[col]; i++) {
+                c = mescola(c ^ carte[i]);
+            }
+            insiemi += finalizza(c + 0x100);
+        }
+        return finalizza(h ^ insiemi);
+    }
+
+    static long mescola(long h) {
+        h *= 0xBF58476D1CE4E5B9L;
+        return h ^ (h >>> 31);
+    }
+
+    // Finalizzatore di MurmurHash3: ogni bit d'ingresso influenza tutta l'uscita,
+    // necessario perché una somma di hash deboli collide facilmente
+    static long finalizza(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
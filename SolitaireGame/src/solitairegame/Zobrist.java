@@ -0,0 +1,45 @@
+package solitairegame;
+
+/**
+ * CHIAVI ZOBRIST - Numeri casuali fissi per l'hash incrementale delle
+ * posizioni.
+ *
+ * L'hash di una posizione è lo XOR di una chiave per ogni carta, scelta in
+ * base a pila (numerazione di {@link Moves}), posizione nella pila e codice,
+ * più una chiave per la prima carta scoperta di ogni colonna. Spostare una
+ * carta costa due XOR e girarne una altri due, quindi l'hash si aggiorna
+ * insieme alle pile senza mai ripercorrerle.
+ *
+ * Le chiavi vengono da un {@link DealRandom} con seme fisso: lo stesso
+ * hash vale tra esecuzioni diverse.
+ */
+final class Zobrist {
+
+    // In partita nessuna pila supera le 24 carte, ma un BoardState costruito
+    // a mano può mettere tutto il mazzo in una pila
+    static final int MAX_PILA = 52;
+
+    private static final long[] CARTE = new long[13 * MAX_PILA * 52];
+    private static final long[] PRIME_SCOPERTE = new long[7 * MAX_PILA];
+
+    static {
+        DealRandom generatore = new DealRandom(0x2B0B_1A5E_5EED_0001L);
+        for (int i = 0; i < CARTE.length; i++) {
+            CARTE[i] = generatore.nextLong();
+        }
+        for (int i = 0; i < PRIME_SCOPERTE.length; i++) {
+            PRIME_SCOPERTE[i] = generatore.nextLong();
+        }
+    }
+
+    private Zobrist() {
+    }
+
+    static long carta(int pila, int indice, int codice) {
+        return CARTE[(pila * MAX_PILA + indice) * 52 + codice];
+    }
+
+    static long primaScoperta(int colonna, int indice) {
+        return PRIME_SCOPERTE[colonna * MAX_PILA + indice];
+    }
+}